@@ -22,30 +22,40 @@
 
  package ija.project.ijaproject;
 
+ import ija.project.ijaproject.common.Event;
+ import ija.project.ijaproject.common.Observable;
+ import ija.project.ijaproject.game.GameEvent;
+ import ija.project.ijaproject.game.GameJournal;
+ import ija.project.ijaproject.game.GameLogLoader;
+ import ija.project.ijaproject.game.GameLogReader;
  import ija.project.ijaproject.game.node.NodePosition;
- import ija.project.ijaproject.game.node.NodeSide;
  import ija.project.ijaproject.game.Game;
  import ija.project.ijaproject.game.GameRepo;
+ import ija.project.ijaproject.game.PuzzlePool;
+ import ija.project.ijaproject.game.ReplayEngine;
+ import ija.project.ijaproject.game.solver.HintEngine;
  import ija.project.ijaproject.view.BoardView;
  import javafx.application.Application;
  import javafx.application.Platform;
+ import javafx.concurrent.Task;
  import javafx.geometry.Insets;
  import javafx.geometry.Pos;
  import javafx.scene.Scene;
  import javafx.scene.control.Button;
  import javafx.scene.control.ComboBox;
  import javafx.scene.control.Label;
+ import javafx.scene.control.ProgressIndicator;
+ import javafx.scene.control.Slider;
+ import javafx.scene.input.MouseEvent;
  import javafx.scene.layout.BorderPane;
  import javafx.scene.layout.HBox;
  import javafx.scene.layout.VBox;
  import javafx.stage.FileChooser;
  import javafx.stage.Stage;
  
- import java.io.BufferedReader;
  import java.io.File;
- import java.io.FileReader;
  import java.io.IOException;
- import java.util.*;
+ import java.nio.file.Path;
  
  /**
   * @class GameApp
@@ -60,6 +70,19 @@
      private BoardView infoView;    ///< The informational board view.
      private Stage infoStage;       ///< The stage for the informational view.
      private Label statusLabel;     ///< Label for displaying game status messages.
+     private BorderPane root;       ///< The root pane of the main window.
+     private ProgressIndicator generationProgress; ///< Progress of the running game generation.
+     private Button cancelButton;   ///< Button cancelling the running game generation.
+     private Task<PreparedGame> generationTask;    ///< The running game generation, or null if there is none.
+     private HintEngine hintEngine; ///< Hints for the current game, or null if there is no game.
+     private GameJournal journal;   ///< Autosave journal of the current game, or null if there is none.
+     private ReplayEngine replay;   ///< Seekable replay of the current game, built again when its log changes.
+     private Slider replaySlider;   ///< Scrubber jumping the replay to any move.
+     private boolean syncingReplay; ///< Set while the scrubber is moved to the current move of the game.
+     private static final Path JOURNAL_FILE = Path.of(System.getProperty("user.home"),
+             ".ija-lightbulb", "autosave.blog"); ///< Journal of the last session, recovered on start.
+     private final PuzzlePool puzzlePool = new PuzzlePool(3, 12,
+             Math.max(1, Runtime.getRuntime().availableProcessors() / 2)); ///< Pre-generated puzzles for new games.
  
      /**
       * @brief Entry point for the application.
@@ -75,7 +98,7 @@
       */
      @Override
      public void start(Stage stage) {
-         BorderPane root = new BorderPane();
+         root = new BorderPane();
          root.setPadding(new Insets(10));
  
          // Create controls
@@ -91,6 +114,8 @@
          // Difficulty selection
          ComboBox<String> difficultySelector = new ComboBox<>();
          difficultySelector.getItems().addAll(GameRepo.getAvailablePuzzles());
+         // Start generating puzzles of all difficulties, so new games are ready immediately
+         GameRepo.getAvailablePuzzles().forEach(puzzlePool::prefetch);
          difficultySelector.setValue("Easy");
          difficultySelector.setOnAction(e -> createGame(difficultySelector.getValue()));
  
@@ -99,15 +124,28 @@
  
          Button showInfoButton = new Button("Show Info View");
          showInfoButton.setOnAction(e -> showInfoView());
+
+         Button hintButton = new Button("Hint");
+         hintButton.setOnAction(e -> showHint());
+ 
+         // Generation progress, shown only while a new game is being prepared
+         generationProgress = new ProgressIndicator();
+         generationProgress.setPrefSize(24, 24);
+         cancelButton = new Button("Cancel");
+         cancelButton.setOnAction(e -> cancelGeneration());
+         setGenerating(false);
  
-         gameControls.getChildren().addAll(difficultySelector, newGameButton, showInfoButton);
+         gameControls.getChildren().addAll(difficultySelector, newGameButton, showInfoButton, hintButton,
+                 generationProgress, cancelButton);
  
          // Replay controls
          HBox replayControls = new HBox(10);
          replayControls.setAlignment(Pos.CENTER);
  
          Button saveLogButton = new Button("Save Log");
-         saveLogButton.setOnAction(e -> this.game.logger().save());
+         saveLogButton.setOnAction(e -> {
+             if (this.game != null) this.game.logger().save();
+         });
  
          Button loadLogButton = new Button("Load Log");
          loadLogButton.setOnAction(e -> loadGameFromLog());
@@ -117,59 +155,271 @@
  
          Button nextButton = new Button("→");
          nextButton.setOnAction(e -> replayNextMove());
+
+         // The replay is rebuilt before the scrubber reacts to the press, so its range covers the latest moves
+         replaySlider = new Slider(0, 0, 0);
+         replaySlider.setPrefWidth(200);
+         replaySlider.addEventFilter(MouseEvent.MOUSE_PRESSED, e -> prepareReplay());
+         replaySlider.valueProperty().addListener((obs, oldValue, newValue) -> {
+             if (!syncingReplay) seekReplay((int) Math.round(newValue.doubleValue()));
+         });
  
-         replayControls.getChildren().addAll(saveLogButton, loadLogButton, prevButton, nextButton);
+         replayControls.getChildren().addAll(saveLogButton, loadLogButton, prevButton, nextButton, replaySlider);
  
          controls.getChildren().addAll(statusLabel, gameControls, replayControls);
          root.setBottom(controls);
  
-         // Now that statusLabel is initialized, create the game
-         createGame("Easy");
- 
-         // Create board view
-         boardView = new BoardView(game, false);
-         root.setCenter(boardView);
- 
          Scene scene = new Scene(root, 600, 650);
          stage.setTitle("IJA 2024/25: LightBulb");
          stage.setScene(scene);
          stage.show();
  
-         calculateAndSetMinimumSize(stage, boardView);
+         // Now that the controls are initialized, continue the last session or create a new game
+         Game recovered = GameJournal.recover(JOURNAL_FILE);
+         if (recovered != null) {
+             showGame(new PreparedGame(recovered, new BoardView(recovered, false)));
+             statusLabel.setText("Last session recovered");
+         } else {
+             createGame("Easy");
+         }
+     }
+ 
+     /**
+      * @brief Stops the JavaFX application and the background puzzle generation.
+      */
+     @Override
+     public void stop() {
+         cancelGeneration();
+         puzzlePool.shutdown();
+         if (journal != null) journal.close();
+     }
+ 
+     /**
+      * @brief A generated game together with its board view, prepared off the FX thread.
+      * @param game The generated and initialized game.
+      * @param view The board view of the game, not yet attached to a scene.
+      */
+     private record PreparedGame(Game game, BoardView view) {
      }
  
      /**
-      * @brief Creates a new game with the specified difficulty.
+      * @brief Starts creating a new game with the specified difficulty in the background.
+      * The puzzle generation, game construction and board view preparation run on a background
+      * thread; only the swap of the board view runs on the FX thread. A generation still running
+      * is cancelled first, so changing the difficulty does not wait for an unwanted game.
       * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
       */
      private void createGame(String difficulty) {
-         // Close info view if open
+         cancelGeneration();
+ 
+         Task<PreparedGame> task = new Task<>() {
+             @Override
+             protected PreparedGame call() {
+                 updateProgress(0, 3);
+                 updateMessage("Generating " + difficulty + " puzzle...");
+                 // Take a pre-generated puzzle, the pool refills itself in the background
+                 var puzzle = puzzlePool.take(difficulty);
+                 if (isCancelled()) return null;
+ 
+                 updateProgress(1, 3);
+                 updateMessage("Building " + difficulty + " game...");
+                 Game created = puzzle.toGame();
+                 if (isCancelled()) return null;
+ 
+                 updateProgress(2, 3);
+                 updateMessage("Preparing board...");
+                 BoardView view = new BoardView(created, false);
+                 updateProgress(3, 3);
+                 return new PreparedGame(created, view);
+             }
+         };
+ 
+         task.setOnSucceeded(e -> {
+             if (generationTask != task) return;
+             generationTask = null;
+             setGenerating(false);
+             showGame(task.getValue());
+             statusLabel.setText("New game started - " + difficulty + " difficulty");
+         });
+         task.setOnCancelled(e -> {
+             if (generationTask != task) return;
+             generationTask = null;
+             setGenerating(false);
+             statusLabel.setText("Game generation cancelled");
+         });
+         task.setOnFailed(e -> {
+             if (generationTask != task) return;
+             generationTask = null;
+             setGenerating(false);
+             System.err.println("Error generating game: " + task.getException());
+             statusLabel.setText("Game generation failed");
+         });
+ 
+         generationTask = task;
+         generationProgress.progressProperty().bind(task.progressProperty());
+         statusLabel.textProperty().bind(task.messageProperty());
+         setGenerating(true);
+ 
+         Thread thread = new Thread(task, "game-generation");
+         thread.setDaemon(true);
+         thread.start();
+     }
+ 
+     /**
+      * @brief Cancels the running game generation, if any, interrupting its thread.
+      */
+     private void cancelGeneration() {
+         Task<PreparedGame> task = generationTask;
+         if (task == null) return;
+         task.cancel(true);
+     }
+ 
+     /**
+      * @brief Shows or hides the generation progress and the cancel button.
+      * @param generating True while a new game is being generated.
+      */
+     private void setGenerating(boolean generating) {
+         if (!generating) {
+             generationProgress.progressProperty().unbind();
+             statusLabel.textProperty().unbind();
+         }
+         generationProgress.setVisible(generating);
+         generationProgress.setManaged(generating);
+         cancelButton.setVisible(generating);
+         cancelButton.setManaged(generating);
+     }
+ 
+     /**
+      * @brief Replaces the current game and board view with a prepared game.
+      * @param prepared The game and its board view.
+      */
+     private void showGame(PreparedGame prepared) {
+         releaseViews();
+         game = prepared.game();
+         game.addObserver(this::onGameEvent);
+         attachHints();
+         startJournal();
+         syncReplay();
+         boardView = prepared.view();
+         root.setCenter(boardView);
+ 
+         if (boardView.getScene() != null) {
+             calculateAndSetMinimumSize((Stage) boardView.getScene().getWindow(), boardView);
+         }
+     }
+ 
+     /**
+      * @brief Closes the info view if open and detaches the board view from the game being replaced.
+      */
+     private void releaseViews() {
          if (infoStage != null) {
              infoStage.close();
              infoStage = null;
          }
+         if (boardView != null) boardView.dispose();
+     }
  
-         // Use GameRepo to generate the game
-         game = GameRepo.generate(difficulty);
+     /**
+      * @brief Reports the completion of the current game, or leaving it in the replay, in the status label.
+      * @param observable The game that triggered the event.
+      * @param event The event description.
+      */
+     private void onGameEvent(Observable observable, Event event) {
+         if (event instanceof GameEvent.Completed) {
+             Platform.runLater(() -> statusLabel.setText("All bulbs are lit - puzzle solved!"));
+         } else if (event instanceof GameEvent.Reopened) {
+             Platform.runLater(() -> statusLabel.setText("Not all bulbs are lit at this move"));
+         } else if (event instanceof GameEvent.BoardChanged) {
+             Platform.runLater(this::syncReplay);
+         }
+     }
  
-         // Update the board view
-         if (boardView != null) {
-             BorderPane root = (BorderPane) boardView.getParent();
-             boardView = new BoardView(game, false);
-             root.setCenter(boardView);
+     /**
+      * @brief Replaces the hint engine of the previous game with one following the current game.
+      */
+     private void attachHints() {
+         if (hintEngine != null) hintEngine.detach();
+         hintEngine = new HintEngine(game);
+     }
+
+     /**
+      * @brief Replaces the autosave journal of the previous game with a new one of the current game.
+      */
+     private void startJournal() {
+         if (journal != null) journal.close();
+         try {
+             journal = new GameJournal(JOURNAL_FILE);
+             game.logger().journal(journal);
+         } catch (IOException e) {
+             journal = null;
+             System.err.println("Error starting game journal: " + e.getMessage());
+         }
+     }
  
-             if (boardView.getScene() != null) {
-                 calculateAndSetMinimumSize((Stage) boardView.getScene().getWindow(), boardView);
+     /**
+      * @brief Builds the replay of the current game again if its log changed since the last seek.
+      */
+     private void prepareReplay() {
+         if (game == null) return;
+         if (replay == null || replay.game() != game || !replay.isCurrent()) {
+             try {
+                 replay = new ReplayEngine(game);
+             } catch (IllegalStateException e) {
+                 // The log holds no moves to replay
+                 replay = null;
              }
          }
- 
-         statusLabel.setText("New game started - " + difficulty + " difficulty");
+         syncReplay();
+     }
+
+     /**
+      * @brief Jumps the replay of the current game to a move chosen by the scrubber.
+      * @param move The move to go to, 0 for the board before the first move.
+      */
+     private void seekReplay(int move) {
+         if (replay == null || replay.game() != game || !replay.isCurrent()) prepareReplay();
+         if (replay == null) return;
+         replay.seek(Math.max(0, Math.min(move, replay.moves())));
+     }
+
+     /**
+      * @brief Moves the scrubber to the current move of the game without seeking.
+      */
+     private void syncReplay() {
+         if (replaySlider == null) return;
+         syncingReplay = true;
+         int start = game != null ? game.logger().replayStart() : -1;
+         if (start >= 0) {
+             replaySlider.setMax(Math.max(0, game.logger().size() - 1 - start));
+             replaySlider.setValue(Math.max(0, game.logger().position() - start));
+         } else {
+             replaySlider.setMax(0);
+             replaySlider.setValue(0);
+         }
+         syncingReplay = false;
+     }
+
+     /**
+      * @brief Shows the next rotation leading to the solution in the status label.
+      */
+     private void showHint() {
+         if (hintEngine == null) return;
+         HintEngine.Hint hint = hintEngine.hint();
+         if (!hintEngine.ready()) {
+             statusLabel.setText("No hint yet - the board is still being solved");
+         } else if (hint == null) {
+             statusLabel.setText(game.isComplete() ? "The puzzle is already solved" : "No solution found");
+         } else {
+             statusLabel.setText("Hint: rotate " + new NodePosition(hint.row(), hint.col()) + " "
+                     + hint.turns() + (hint.turns() == 1 ? " time" : " times"));
+         }
      }
  
      /**
       * @brief Displays the informational view of the game.
       */
      private void showInfoView() {
+         if (game == null) return;
          if (infoStage == null || !infoStage.isShowing()) {
              infoStage = new Stage();
              infoStage.setTitle("Game Information");
@@ -177,8 +427,11 @@
              BorderPane infoRoot = new BorderPane();
              infoRoot.setPadding(new Insets(10));
  
-             infoView = new BoardView(game, true);
-             infoRoot.setCenter(infoView);
+             BoardView view = new BoardView(game, true);
+             infoView = view;
+             infoRoot.setCenter(view);
+             // Closed by the user or replaced together with the game
+             infoStage.setOnHidden(e -> view.dispose());
  
              Scene infoScene = new Scene(infoRoot, 500, 550);
              infoStage.setScene(infoScene);
@@ -238,47 +491,31 @@
       * @brief Replays the previous move in the game.
       */
      private void replayPreviousMove() {
+         if (this.game == null) return;
          this.game.logger().disable();
-         String[] parts = this.game.logger().getLine().split(" ", 2);
-         switch (parts[0]) {
-             case "G":
-                 // Game initialization - Cannot be undone
-                 break;
-             case "N":
-                 // Node creation - Cannot be undone
-                 break;
-             case "T":
-                 // Turn action - format is "T [row@col]"
-                 NodePosition pos = NodePosition.fromString(parts[1]);
-                 game.node(pos).turnBack(true);
-                 this.game.logger().previous();
-                 break;
+         // Game initialization and node creation cannot be undone
+         if (this.game.logger().getAction() instanceof GameEvent.Rotation rotation) {
+             game.node(new NodePosition(rotation.row(), rotation.col())).turnBack(true);
+             this.game.logger().previous();
          }
          this.game.logger().enable();
+         syncReplay();
      }
  
      /**
       * @brief Replays the next move in the game.
       */
      private void replayNextMove() {
+         if (this.game == null) return;
          this.game.logger().disable();
          if (this.game.logger().next()) {
-             String[] parts = this.game.logger().getLine().split(" ", 2);
-             switch (parts[0]) {
-                 case "G":
-                     // Game initialization - Should not be possible to undo
-                     break;
-                 case "N":
-                     // Node creation - Should not be possible to undo
-                     break;
-                 case "T":
-                     // Turn action - format is "T [row@col]"
-                     NodePosition pos = NodePosition.fromString(parts[1]);
-                     game.node(pos).turn(true);
-                     break;
+             // Game initialization and node creation should not be possible to redo
+             if (this.game.logger().getAction() instanceof GameEvent.Rotation rotation) {
+                 game.node(new NodePosition(rotation.row(), rotation.col())).turn(true);
              }
          }
          this.game.logger().enable();
+         syncReplay();
      }
  
      /**
@@ -287,155 +524,31 @@
      private void loadGameFromLog() {
          FileChooser fileChooser = new FileChooser();
          fileChooser.setTitle("Load Game Log");
-         fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Game Log Files", "*.log"));
+         fileChooser.getExtensionFilters().addAll(
+                 new FileChooser.ExtensionFilter("Game Log Files", "*.log"),
+                 new FileChooser.ExtensionFilter("Binary Game Log Files", "*.blog"));
  
          File file = fileChooser.showOpenDialog(null);
-         if (file != null) {
-             try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                 // First, load the log into memory
-                 List<String> logActions = new ArrayList<>();
-                 String line;
-                 while ((line = reader.readLine()) != null) {
-                     logActions.addAll(Arrays.asList(line.split(" ")));
-                 }
- 
-                 if (logActions.isEmpty()) return;
- 
-                 // Process first game initialization command
-                 String firstAction = logActions.get(0);
-                 if (firstAction.equals("G")) {
-                     NodePosition pos = NodePosition.fromString(logActions.get(1));
-                     if (pos != null) {
-                         game = new Game(pos.row(), pos.col());
- 
-                         // Process remaining actions
-                         boolean generated = false;
-                         for (int i = 2; i < logActions.size(); i++) {
-                             String action = logActions.get(i);
-                             if (action.equals("N") || action.equals("T")) {
-                                 generated = executeAction(action + " " + logActions.get(++i), generated);
-                             } else if (action.equals("Gen")) {
-                                 this.game.logger().logAction("Gen finished");
-                                 generated = true;
-                             }
-                         }
- 
-                         game.init();
- 
-                         // Update UI
-                         if (boardView != null) {
-                             BorderPane root = (BorderPane) boardView.getParent();
-                             boardView = new BoardView(game, false);
-                             root.setCenter(boardView);
-                         }
- 
-                         statusLabel.setText("Game loaded from log");
-                     }
-                 }
-             } catch (IOException e) {
-                 System.err.println("Error loading game log: " + e.getMessage());
-             }
-         }
-     }
- 
-     /**
-      * @brief Executes a game action from the log.
-      * @param action The action to execute.
-      * @param generated Whether the game has been generated.
-      * @return True if the game was generated, false otherwise.
-      */
-     private boolean executeAction(String action, boolean generated) {
-         if (action == null || action.isEmpty()) return generated;
- 
-         // Parse and execute the action based on its type
-         String[] parts = action.split(" ", 2);
-         String actionType = parts[0];
-         NodePosition pos;
-         switch (actionType) {
-             case "G":
-                 // Game initialization
-                 if (parts.length > 1) {
-                     pos = NodePosition.fromString(parts[1]);
-                     if (pos != null) {
-                         game = new Game(pos.row(), pos.col());
- 
-                         if (boardView != null) {
-                             BorderPane root = (BorderPane) boardView.getParent();
-                             boardView = new BoardView(game, false);
-                             root.setCenter(boardView);
- 
-                             // Update info view if open
-                             if (infoView != null && infoStage != null && infoStage.isShowing()) {
-                                 BorderPane infoRoot = (BorderPane) infoView.getParent();
-                                 infoView = new BoardView(game, true);
-                                 infoRoot.setCenter(infoView);
-                             }
-                         }
- 
-                         statusLabel.setText("Game loaded from log");
-                     }
-                 }
-                 break;
-             case "N":
-                 // Node creation - will need to parse the node details and create it
-                 parseAndCreateNode(parts[1]);
-                 break;
-             case "T":
-                 // Turn action - format is "T [row@col]"
-                 if (parts.length > 1) {
-                     pos = NodePosition.fromString(parts[1]);
-                     if (pos != null) game.node(pos).turn(generated);
-                 }
-                 break;
- 
-         }
-         return generated;
-     }
- 
-     /**
-      * @brief Parses and creates a node from a log entry.
-      * @param nodeStr The string representation of the node.
-      */
-     private void parseAndCreateNode(String nodeStr) {
+         if (file == null) return;
+         // A loaded game replaces any game still being generated
+         cancelGeneration();
          try {
-             // Remove outer braces
-             nodeStr = nodeStr.substring(1, nodeStr.length() - 1);
- 
-             // Extract type (first character)
-             String typeStr = nodeStr.substring(0, 1);
- 
-             // Extract position (between first [ and ])
-             int posStartIdx = nodeStr.indexOf('[');
-             int posEndIdx = nodeStr.indexOf(']');
-             String posStr = nodeStr.substring(posStartIdx, posEndIdx + 1);
-             NodePosition position = NodePosition.fromString(posStr);
- 
-             // Extract sides (between second [ and ])
-             int sidesStartIdx = nodeStr.indexOf('[', posEndIdx + 1);
-             int sidesEndIdx = nodeStr.indexOf(']', sidesStartIdx);
-             String sidesStr = nodeStr.substring(sidesStartIdx + 1, sidesEndIdx);
- 
-             // Parse sides
-             String[] sideNames = sidesStr.split(",");
-             NodeSide[] sides = new NodeSide[sideNames.length];
-             for (int i = 0; i < sideNames.length; i++) {
-                 sides[i] = NodeSide.valueOf(sideNames[i]);
-             }
- 
-             // Create node based on type
-             switch (typeStr) {
-                 case "L":
-                     game.createLinkNode(position, sides);
-                     break;
-                 case "B":
-                     game.createBulbNode(position, sides[0]);
-                     break;
-                 case "P":
-                     game.createPowerNode(position, sides);
-                     break;
-             }
-         } catch (Exception e) {
-             System.err.println("Error parsing node: " + e.getMessage());
+             // Binary logs hold whole generated boards as packed bytes, text logs are streamed and parsed in place
+             Game loaded = file.getName().endsWith(".blog")
+                     ? GameLogReader.load(file.toPath())
+                     : GameLogLoader.load(file.toPath());
+             if (loaded == null) return;
+             releaseViews();
+             game = loaded;
+             game.addObserver(this::onGameEvent);
+             attachHints();
+             startJournal();
+             syncReplay();
+             boardView = new BoardView(game, false);
+             root.setCenter(boardView);
+             statusLabel.setText("Game loaded from log");
+         } catch (IOException e) {
+             System.err.println("Error loading game log: " + e.getMessage());
          }
      }
  }
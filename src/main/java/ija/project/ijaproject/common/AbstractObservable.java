@@ -12,15 +12,16 @@
 
 package ija.project.ijaproject.common;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * @brief Abstract class implementing the Observable interface.
  * This class handles the registration, removal, and notification of observers.
+ * Observers are kept in a copy-on-write array, so notifying them is a plain loop
+ * that is not disturbed by observers registering or unregistering during it.
  */
 public abstract class AbstractObservable implements Observable {
-    private final Set<Observer> observers = new HashSet<>();
+    private Observer[] observers = new Observer[0];
 
     /**
      * @brief Default constructor.
@@ -33,7 +34,12 @@ public abstract class AbstractObservable implements Observable {
      * @brief Registers an observer to this observable object.
      */
     public void addObserver(Observer o) {
-        this.observers.add(o);
+        for (Observer registered : this.observers) {
+            if (registered == o) return;
+        }
+        Observer[] updated = Arrays.copyOf(this.observers, this.observers.length + 1);
+        updated[this.observers.length] = o;
+        this.observers = updated;
     }
 
     /**
@@ -41,14 +47,25 @@ public abstract class AbstractObservable implements Observable {
      * @brief Unregisters an observer from this observable object.
      */
     public void removeObserver(Observer o) {
-        this.observers.remove(o);
+        for (int i = 0; i < this.observers.length; i++) {
+            if (this.observers[i] == o) {
+                Observer[] updated = new Observer[this.observers.length - 1];
+                System.arraycopy(this.observers, 0, updated, 0, i);
+                System.arraycopy(this.observers, i + 1, updated, i, this.observers.length - i - 1);
+                this.observers = updated;
+                return;
+            }
+        }
     }
 
     /**
-     * @param log A message or data describing the event.
+     * @param event The event that occurred, or null for an unspecified change.
      * @brief Notifies all registered observers of an event.
      */
-    public void notifyObservers(String log) {
-        this.observers.forEach((var1) -> var1.update(this, log));
+    public void notifyObservers(Event event) {
+        Observer[] current = this.observers;
+        for (int i = 0; i < current.length; i++) {
+            current[i].update(this, event);
+        }
     }
 }
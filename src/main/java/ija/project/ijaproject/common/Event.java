@@ -0,0 +1,21 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Base type of events delivered by observable objects   #
+# to their observers.                                   #
+#########################################################
+*/
+
+package ija.project.ijaproject.common;
+
+/**
+ * @brief Marker interface of events passed from an Observable to its observers.
+ *
+ * Concrete event types carry their data in typed fields, so observers can
+ * react to an event without parsing any text.
+ */
+public interface Event {
+}
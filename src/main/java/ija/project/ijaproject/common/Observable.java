@@ -39,9 +39,9 @@ public interface Observable {
     /**
      * @brief Notifies all registered observers of an event.
      *
-     * @param log A message or data describing the event.
+     * @param event The event that occurred, or null for an unspecified change.
      */
-    void notifyObservers(String log);
+    void notifyObservers(Event event);
 
     /**
      * @brief Interface for objects that want to observe an Observable.
@@ -54,8 +54,8 @@ public interface Observable {
          * @brief Called when the observable object notifies its observers.
          *
          * @param var1 The observable object that triggered the update.
-         * @param log A message or data describing the event.
+         * @param event The event that occurred, or null for an unspecified change.
          */
-        void update(Observable var1, String log);
+        void update(Observable var1, Event event);
     }
 }
@@ -0,0 +1,394 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Connected components of the tile graph of a game,     #
+# maintained under rotations. Answers power             #
+# reachability and component queries in constant time,  #
+# also for hypothetical rotations made by solvers and   #
+# hints.                                                #
+#########################################################
+*/
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.common.Observable;
+import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.util.Arrays;
+
+/**
+ * @brief Connected components of the tiles of a game board.
+ * Two neighbouring tiles are connected if both connect to their common side, the same
+ * rule the game uses for energy propagation. Every tile carries the label of its component,
+ * so reachability from the power source is a single comparison.
+ * The index keeps its own copy of the connector masks, so rotations may be applied to it
+ * without touching the game, and undone by the opposite rotation. Added connections merge the
+ * smaller component into the larger one; for removed connections a search from both ends,
+ * advancing one tile at a time on each side, finds out whether the component split and relabels
+ * the smaller part, so the cost of a rotation is bounded by the smaller of the affected parts.
+ */
+public class ConnectivityIndex implements Observable.Observer {
+    /**
+     * @brief All node sides, cached to avoid copying the values array
+     */
+    private static final NodeSide[] SIDES = NodeSide.values();
+    /**
+     * @brief Number of rows on the board
+     */
+    private final int rows;
+    /**
+     * @brief Number of columns on the board
+     */
+    private final int cols;
+    /**
+     * @brief Current connector masks of all tiles
+     */
+    private final byte[] sides;
+    /**
+     * @brief Component label of every tile
+     */
+    private final int[] label;
+    /**
+     * @brief Number of tiles in the component with the given label
+     */
+    private final int[] size;
+    /**
+     * @brief Stack of unused component labels
+     */
+    private final int[] freeLabels;
+    /**
+     * @brief Number of labels on the stack of unused labels
+     */
+    private int freeCount = 0;
+    /**
+     * @brief Tile index of the power source, or -1 if there is none
+     */
+    private int power = -1;
+    /**
+     * @brief Work queues of the two searches, the first one is also used for relabelling
+     */
+    private final int[] queueA, queueB;
+    /**
+     * @brief Search in which a tile was last visited, see epoch
+     */
+    private final int[] visited;
+    /**
+     * @brief Identifier of the last search, the searches from both ends use epoch - 1 and epoch
+     */
+    private int epoch = 0;
+
+    /**
+     * @param game Game whose board is indexed
+     * @brief Builds the index from the current state of a game board.
+     * The index does not follow the game on its own, see attach().
+     */
+    public ConnectivityIndex(Game game) {
+        this(game, null);
+    }
+
+    /**
+     * @param game  Game whose board is indexed
+     * @param sides Connector mask of every tile to index instead of the current ones, or null
+     * @brief Builds the index of a game board with all tiles rotated to the given connector masks.
+     * The game is not changed, so the index answers queries about a board the player has not made.
+     */
+    public ConnectivityIndex(Game game, byte[] sides) {
+        this.rows = game.rows();
+        this.cols = game.cols();
+        int n = rows * cols;
+        this.sides = new byte[n];
+        this.label = new int[n];
+        this.size = new int[n];
+        this.freeLabels = new int[n];
+        this.queueA = new int[n];
+        this.queueB = new int[n];
+        this.visited = new int[n];
+        rebuild(game, sides);
+    }
+
+    /**
+     * @param game Game whose board is indexed
+     * @brief Recomputes all components from the current state of the game board.
+     */
+    public void rebuild(Game game) {
+        rebuild(game, null);
+    }
+
+    /**
+     * @param game  Game whose board is indexed
+     * @param masks Connector mask of every tile to index instead of the current ones, or null
+     * @brief Recomputes all components of the game board with the given connector masks.
+     * Empty tiles keep their own sides, so a mask never connects through them.
+     */
+    private void rebuild(Game game, byte[] masks) {
+        int n = sides.length;
+        this.power = -1;
+        for (int i = 0; i < n; i++) {
+            GameNode node = game.node(i);
+            boolean given = masks != null && !node.is(NodeType.EMPTY);
+            this.sides[i] = (byte) (given ? masks[i] & 0x0F : node.sides());
+            if (node.is(NodeType.POWER)) this.power = i;
+        }
+        Arrays.fill(this.label, -1);
+        this.freeCount = 0;
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            if (this.label[i] < 0) {
+                this.label[i] = next;
+                this.size[next] = relabel(i, -1, next);
+                next++;
+            }
+        }
+        for (int l = n - 1; l >= next; l--) {
+            this.freeLabels[this.freeCount++] = l;
+        }
+    }
+
+    /**
+     * @param game Game to follow
+     * @brief Registers the index as an observer of the game, so it follows all rotations on the board.
+     */
+    public void attach(Game game) {
+        game.addObserver(this);
+    }
+
+    /**
+     * @param o     Observable object that triggered the update
+     * @param event Event that triggered the update
+     * @brief Applies the rotations reported by the game to the index.
+     * A null event reports that the whole board may have changed, so the index is rebuilt.
+     */
+    @Override
+    public void update(Observable o, Event event) {
+        if (!(o instanceof Game game)) return;
+        if (event instanceof GameEvent.BoardChanged changed) {
+            for (int tile : changed.tiles()) {
+                int current = game.node(tile).sides();
+                if (current != this.sides[tile]) setSides(tile, current);
+            }
+        } else if (event == null) {
+            rebuild(game);
+        }
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @return True if the tile is connected to the power source
+     * @brief Checks if energy reaches a tile.
+     */
+    public boolean isPowered(int index) {
+        return this.power >= 0 && this.label[index] == this.label[this.power];
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @return Label of the component, equal for two tiles if and only if they are connected
+     * @brief Returns the component of a tile.
+     * Labels are reused after components merge, so they are valid only until the next rotation.
+     */
+    public int component(int index) {
+        return this.label[index];
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @return Number of tiles in the component of the tile
+     * @brief Returns the size of the component of a tile.
+     */
+    public int componentSize(int index) {
+        return this.size[this.label[index]];
+    }
+
+    /**
+     * @param a Row-major index of the first tile
+     * @param b Row-major index of the second tile
+     * @return True if a path of connected tiles leads from one tile to the other
+     * @brief Checks if two tiles are in the same component.
+     */
+    public boolean connected(int a, int b) {
+        return this.label[a] == this.label[b];
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @return Current connector mask of the tile in the index
+     * @brief Returns the connector mask of a tile as seen by the index.
+     */
+    public int sides(int index) {
+        return this.sides[index];
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @brief Rotates a tile of the index clockwise, the game is not changed.
+     */
+    public void rotate(int index) {
+        setSides(index, GameNode.rotate(this.sides[index]));
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @brief Rotates a tile of the index counterclockwise, undoing rotate().
+     */
+    public void rotateBack(int index) {
+        setSides(index, GameNode.rotateBack(this.sides[index]));
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @param mask  New connector mask of the tile
+     * @brief Changes the connector mask of a tile and updates the affected components.
+     */
+    public void setSides(int index, int mask) {
+        int old = this.sides[index];
+        mask &= 0x0F;
+        if (old == mask) return;
+        // Remove the lost connections one by one first, each of them may split a component
+        for (NodeSide side : SIDES) {
+            if ((old & ~mask & side.mask()) == 0) continue;
+            this.sides[index] &= (byte) ~side.mask();
+            int next = neighbour(index, side);
+            if (next >= 0 && (this.sides[next] & side.opposite().mask()) != 0) split(index, next);
+        }
+        // Then add the new connections, each of them may merge two components
+        this.sides[index] = (byte) mask;
+        for (NodeSide side : SIDES) {
+            if ((mask & ~old & side.mask()) == 0) continue;
+            int next = neighbour(index, side);
+            if (next >= 0 && (this.sides[next] & side.opposite().mask()) != 0) merge(index, next);
+        }
+    }
+
+    /**
+     * @param a Row-major index of the first tile
+     * @param b Row-major index of the second tile
+     * @brief Merges the components of two tiles that were just connected.
+     */
+    private void merge(int a, int b) {
+        int la = this.label[a], lb = this.label[b];
+        if (la == lb) return;
+        int keep = this.size[la] >= this.size[lb] ? la : lb;
+        int drop = keep == la ? lb : la;
+        int start = keep == la ? b : a;
+        this.label[start] = keep;
+        relabel(start, drop, keep);
+        this.size[keep] += this.size[drop];
+        this.freeLabels[this.freeCount++] = drop;
+    }
+
+    /**
+     * @param a Row-major index of the first tile
+     * @param b Row-major index of the second tile
+     * @brief Splits the component of two tiles whose connection was just removed, if no other path connects them.
+     * Searches from both tiles alternate one tile at a time; the search that runs out of tiles
+     * first has visited the smaller part, which gets a new label. Meeting of the searches
+     * proves that the tiles are still connected.
+     */
+    private void split(int a, int b) {
+        this.epoch += 2;
+        int markA = this.epoch - 1, markB = this.epoch;
+        int headA = 0, tailA = 0, headB = 0, tailB = 0;
+        this.visited[a] = markA;
+        this.queueA[tailA++] = a;
+        this.visited[b] = markB;
+        this.queueB[tailB++] = b;
+        while (headA < tailA && headB < tailB) {
+            int result = expand(this.queueA[headA++], markA, markB, this.queueA, tailA);
+            if (result < 0) return;
+            tailA = result;
+            result = expand(this.queueB[headB++], markB, markA, this.queueB, tailB);
+            if (result < 0) return;
+            tailB = result;
+        }
+        int old = this.label[a];
+        int fresh = this.freeLabels[--this.freeCount];
+        int[] part = headA == tailA ? this.queueA : this.queueB;
+        int count = headA == tailA ? tailA : tailB;
+        for (int i = 0; i < count; i++) {
+            this.label[part[i]] = fresh;
+        }
+        this.size[fresh] = count;
+        this.size[old] -= count;
+    }
+
+    /**
+     * @param current Tile index to expand
+     * @param own     Mark of this search
+     * @param other   Mark of the opposite search
+     * @param queue   Work queue of this search
+     * @param tail    Number of tiles in the work queue
+     * @return New number of tiles in the work queue, or -1 if the opposite search was reached
+     * @brief Visits the unvisited tiles connected to a tile in one of the two searches of split().
+     */
+    private int expand(int current, int own, int other, int[] queue, int tail) {
+        for (NodeSide side : SIDES) {
+            int next = linked(current, side);
+            if (next < 0 || this.visited[next] == own) continue;
+            if (this.visited[next] == other) return -1;
+            this.visited[next] = own;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    /**
+     * @param start Tile index already carrying the new label
+     * @param from  Previous label, -1 for unlabelled tiles
+     * @param to    New label
+     * @return Number of relabelled tiles including the start tile
+     * @brief Gives a new label to all tiles connected to the start tile that carry the previous label.
+     * Only tiles with the previous label are visited, so the search stays in one component
+     * even if the start tile was connected to several components at once.
+     */
+    private int relabel(int start, int from, int to) {
+        int head = 0, tail = 0;
+        this.queueA[tail++] = start;
+        while (head < tail) {
+            int current = this.queueA[head++];
+            for (NodeSide side : SIDES) {
+                int next = linked(current, side);
+                if (next >= 0 && this.label[next] == from) {
+                    this.label[next] = to;
+                    this.queueA[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @param side  Side of the tile
+     * @return Tile index of the neighbour if both tiles connect to each other, otherwise -1
+     * @brief Checks if two neighbouring tiles are connected in the index.
+     */
+    private int linked(int index, NodeSide side) {
+        int next = neighbour(index, side);
+        if (next >= 0 && (this.sides[index] & side.mask()) != 0
+                && (this.sides[next] & side.opposite().mask()) != 0) {
+            return next;
+        }
+        return -1;
+    }
+
+    /**
+     * @param index Row-major tile index
+     * @param side  Side of the tile
+     * @return Tile index of the adjacent tile, or -1 if it lies outside the board
+     * @brief Returns the tile next to the given one in the given direction.
+     */
+    private int neighbour(int index, NodeSide side) {
+        return switch (side) {
+            case NORTH -> index >= cols ? index - cols : -1;
+            case EAST -> index % cols < cols - 1 ? index + 1 : -1;
+            case SOUTH -> index < (rows - 1) * cols ? index + cols : -1;
+            case WEST -> index % cols > 0 ? index - 1 : -1;
+        };
+    }
+}
@@ -8,8 +8,8 @@
 # creation (POWER, BULB, LINK), and energy propagation. #
 # Handles state updates via observer pattern, game      #
 # completion checks, and logging of user actions.       #
-# Also provides recursive power propagation based on    #
-# connectivity.                                         #
+# Also provides iterative power propagation based on    #
+# connectivity, updated incrementally after rotations.  #
 #########################################################
 */
 
@@ -17,14 +17,16 @@
 package ija.project.ijaproject.game;
 
 import ija.project.ijaproject.common.AbstractObservable;
+import ija.project.ijaproject.common.Event;
 import ija.project.ijaproject.common.Observable;
 import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodeEvent;
+import ija.project.ijaproject.game.node.NodeGrid;
 import ija.project.ijaproject.game.node.NodePosition;
 import ija.project.ijaproject.game.node.NodeSide;
 import ija.project.ijaproject.game.node.NodeType;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import static ija.project.ijaproject.game.node.NodeType.*;
 
@@ -43,9 +45,9 @@ public class Game extends AbstractObservable implements Observable.Observer {
      */
     private final int cols;
     /**
-     * @brief Two-dimensional array representing the game board
+     * @brief Compact storage of all nodes on the game board
      */
-    private final GameNode[][] board;
+    private final NodeGrid grid;
     /**
      * @brief Logger for recording game actions
      */
@@ -55,13 +57,57 @@ public class Game extends AbstractObservable implements Observable.Observer {
      */
     private NodePosition powerPlaced = null;
     /**
-     * @brief List of positions of all bulbs on the game board
+     * @brief All node sides, cached to avoid copying the values array
      */
-    private final List<NodePosition> bulbs = new ArrayList<>();
+    private static final NodeSide[] SIDES = NodeSide.values();
+    /**
+     * @brief Marker of a node without an energy source in the feed array
+     */
+    private static final byte NO_FEED = -1;
+    /**
+     * @brief Side through which each powered node receives energy, indexed by tile (NO_FEED for the power source and unpowered nodes)
+     */
+    private final byte[] feed;
+    /**
+     * @brief Work queue of tile indexes reused by every propagation
+     */
+    private final int[] queue;
+    /**
+     * @brief Tile indexes of nodes unpowered during an incremental propagation
+     */
+    private final int[] cut;
+    /**
+     * @brief Tile indexes of nodes changed in the current batch, rotated nodes first, then nodes whose power changed
+     */
+    private int[] changed = new int[16];
+    /**
+     * @brief Number of tiles in the changed array
+     */
+    private int changedCount = 0;
+    /**
+     * @brief Bit set of tiles in the changed array
+     */
+    private final long[] changedMarks;
+    /**
+     * @brief Bit set of tiles whose power state changed an odd number of times in the current batch
+     */
+    private final long[] toggledMarks;
+    /**
+     * @brief Number of nested batches in progress
+     */
+    private int batchDepth = 0;
     /**
      * @brief Flag preventing recursive calls during updates
      */
     private boolean updating = false; // Flag to prevent re-entrant calls
+    /**
+     * @brief Flag indicating that the full propagation was done and incremental updates can be used
+     */
+    private boolean initialized = false;
+    /**
+     * @brief Whether all bulbs were powered after the last propagation
+     */
+    private boolean complete = false;
 
     /**
      * @param rows Number of rows on the game board
@@ -70,23 +116,56 @@ public class Game extends AbstractObservable implements Observable.Observer {
      * @brief Constructor creates a new game with the given number of rows and columns.
      */
     public Game(int rows, int cols) {
+        this(rows, cols, new GameEvent.Created(rows, cols));
+    }
+
+    /**
+     * @param puzzle Generated puzzle to place on the board
+     * @brief Constructor creates a new game with all nodes of a puzzle placed and rotated.
+     * The nodes are written to the board directly, without creating views or events for single
+     * nodes, and the whole generation is logged as one compact GameEvent.Generated entry,
+     * so the construction takes linear time and memory even on very large boards.
+     * The power propagation is not initialized, see init().
+     */
+    Game(Puzzle puzzle) {
+        this(puzzle.rows(), puzzle.cols(), new GameEvent.Generated(puzzle));
+        for (int i = 0; i < rows * cols; i++) {
+            NodeType type = puzzle.type(i);
+            if (type == EMPTY) continue;
+            int sides = puzzle.sides()[i];
+            this.grid.place(i, type, sides);
+            if (sides != 0x0F) {
+                for (int t = 0; t < puzzle.turns()[i]; t++) sides = GameNode.rotate(sides);
+                this.grid.setSides(i, sides);
+            }
+            if (type == POWER && powerPlaced == null) powerPlaced = this.grid.position(i);
+        }
+    }
+
+    /**
+     * @param rows  Number of rows on the game board
+     * @param cols  Number of columns on the game board
+     * @param first First entry of the game log
+     * @throws IllegalArgumentException If the number of rows or columns is less than 1
+     * @brief Creates an empty board and a game log starting with the given entry.
+     */
+    private Game(int rows, int cols, GameEvent first) {
         if (rows < 1 || cols < 1) {
             throw new IllegalArgumentException();
         }
         this.rows = rows;
         this.cols = cols;
-        this.board = new GameNode[rows][cols];
-        // Initialize the board
-        for (int i = 1; i <= rows; i++) {
-            for (int j = 1; j <= cols; j++) {
-                NodePosition position = new NodePosition(i, j);
-                this.setBoardNode(position, new GameNode(position, NodeType.EMPTY));
-            }
-        }
+        // Initialize the board, all tiles start empty
+        this.grid = new NodeGrid(rows, cols, this);
+        this.feed = new byte[rows * cols];
+        this.queue = new int[rows * cols];
+        this.cut = new int[rows * cols];
+        this.changedMarks = new long[(rows * cols + 63) >> 6];
+        this.toggledMarks = new long[(rows * cols + 63) >> 6];
         // Initialize the Logger
         this.logger = new GameLogger();
         this.logger.clear();
-        this.logger.logAction("G [" + rows + "@" + cols + "]");
+        this.logger.logAction(first);
     }
 
     /**
@@ -115,25 +194,41 @@ public class Game extends AbstractObservable implements Observable.Observer {
         if (!isValidPosition(p)) {
             throw new IllegalArgumentException("Invalid position");
         }
-        return this.board[p.row() - 1][p.col() - 1];
+        return this.grid.node(index(p));
+    }
+
+    /**
+     * @param index Row-major tile index of the node
+     * @return Node on the given tile
+     * @throws IllegalArgumentException If the index lies outside the board
+     * @brief Returns the node on the given tile.
+     */
+    public GameNode node(int index) {
+        if (index < 0 || index >= rows * cols) {
+            throw new IllegalArgumentException("Invalid tile index");
+        }
+        return this.grid.node(index);
     }
 
     /**
      * @param position Position where the node should be placed
-     * @param node     Node to be placed
+     * @param type     Type of the node
+     * @param sides    Mask of sides to which the node connects
+     * @return Node placed at the position
      * @throws IllegalArgumentException If the position is invalid or a non-empty node already exists at the position
      * @brief Sets a node at the given position.
      */
-    private void setBoardNode(NodePosition position, GameNode node) {
+    private GameNode setBoardNode(NodePosition position, NodeType type, int sides) {
         if (!isValidPosition(position)) {
             throw new IllegalArgumentException("Invalid position");
         }
-        if (node(position) != null && !node(position).is(EMPTY)) {
+        int index = index(position);
+        if (this.grid.type(index) != EMPTY) {
             throw new IllegalArgumentException("Node already exists at position " + position);
         }
-        this.board[position.row() - 1][position.col() - 1] = node;
-        node.addObserver(this);
-        if (logger != null) logger.logAction("N " + node);
+        this.grid.place(index, type, sides);
+        logger.logAction(new GameEvent.NodeCreated(position.row(), position.col(), type, sides));
+        return this.grid.node(index);
     }
 
     /**
@@ -147,11 +242,12 @@ public class Game extends AbstractObservable implements Observable.Observer {
         if (!isValidPosition(position) || (type == NodeType.LINK && sides.length < 2) || (type == POWER && (sides.length < 1 || powerPlaced != null))) {
             return null;
         }
-        GameNode node = new GameNode(position, type, sides);
+        int mask = 0;
+        for (NodeSide side : sides) {
+            mask |= side.mask();
+        }
         if (type == POWER) powerPlaced = position;
-        if (type == BULB) bulbs.add(position);
-        this.setBoardNode(position, node);
-        return node;
+        return this.setBoardNode(position, type, mask);
     }
 
     /**
@@ -187,15 +283,10 @@ public class Game extends AbstractObservable implements Observable.Observer {
     /**
      * @return true if all bulbs are powered, otherwise false
      * @brief Checks if all bulbs in the game are powered.
+     * Compares the maintained count of powered bulbs with the number of bulbs in constant time.
      */
     public boolean isComplete() {
-        for (NodePosition position : bulbs) {
-            GameNode node = this.node(position);
-            if (node != null && node.is(BULB)) {
-                if (!node.isPowered()) return false;
-            }
-        }
-        return true;
+        return this.grid.poweredBulbCount() == this.grid.bulbCount();
     }
 
     /**
@@ -203,71 +294,351 @@ public class Game extends AbstractObservable implements Observable.Observer {
      * @param event Event that triggered the update
      * @brief Updates the game state based on changes in the nodes.
      * Implements the Observer method of the Observable interface.
+     * Only the powered region affected by the changed node is recomputed, inside
+     * a batch the propagation is deferred until the batch is committed.
      */
     @Override
-    public void update(Observable o, String event) {
-        if (event != null) logger.logAction(event);
+    public void update(Observable o, Event event) {
+        if (!(o instanceof GameNode node)) return;
+        if (event instanceof NodeEvent rotation && rotation.clockwise()) {
+            logger.logAction(new GameEvent.Rotation(node.row(), node.col(), true, rotation.player()));
+        }
         if (updating) return; // Prevent re-entrant calls
+        begin();
+        try {
+            markChanged(node.index());
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * @param index Tile index of the changed node
+     * @brief Adds a node to the nodes changed in the current batch.
+     */
+    private void markChanged(int index) {
+        if ((this.changedMarks[index >> 6] & (1L << index)) == 0) {
+            this.changedMarks[index >> 6] |= 1L << index;
+            if (this.changedCount == this.changed.length) {
+                this.changed = Arrays.copyOf(this.changed, this.changedCount * 2);
+            }
+            this.changed[this.changedCount++] = index;
+        }
+    }
+
+    /**
+     * @brief Starts a batch of changes.
+     * Rotations inside a batch are logged immediately, but energy propagation and
+     * observer notifications are deferred until the batch is committed, so every
+     * observer of a changed node and every observer of the game is notified once.
+     * Batches may be nested, only the outermost commit takes effect.
+     */
+    public void begin() {
+        this.batchDepth++;
+        this.grid.beginBatch();
+    }
+
+    /**
+     * @throws IllegalStateException If no batch is in progress
+     * @brief Commits a batch of changes.
+     * Propagates energy from all nodes changed in the batch and sends the coalesced notifications.
+     * Observers of the game receive a GameEvent.BoardChanged event listing every node whose
+     * orientation or power state changed, followed by GameEvent.COMPLETED if the game was just completed
+     * or GameEvent.REOPENED if it is no longer complete.
+     */
+    public void commit() {
+        if (this.batchDepth == 0) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        if (--this.batchDepth > 0) {
+            this.grid.endBatch();
+            return;
+        }
+        int[] delta = null;
         updating = true;
         try {
-            // Reset powerState of all nodes
-            for (int r = 1; r <= rows; r++) {
-                for (int c = 1; c <= cols; c++) {
-                    GameNode node = this.node(new NodePosition(r, c));
-                    if (node != null && !node.is(POWER)) {
-                        node.setPower(false);
-                    }
-                }
+            if (initialized && this.changedCount > 0) {
+                int rotatedCount = this.changedCount;
+                propagate();
+                delta = delta(rotatedCount);
             }
-            // Update powerState of all nodes from Power
-            init();
         } finally {
+            for (int i = 0; i < this.changedCount; i++) {
+                this.changedMarks[this.changed[i] >> 6] &= ~(1L << this.changed[i]);
+                this.toggledMarks[this.changed[i] >> 6] &= ~(1L << this.changed[i]);
+            }
+            this.changedCount = 0;
             updating = false;
+            this.grid.endBatch();
+        }
+        if (delta != null) {
+            notifyObservers(new GameEvent.BoardChanged(delta));
+            GameEvent completion = completionEvent();
+            if (completion != null) notifyObservers(completion);
+        }
+    }
+
+    /**
+     * @param rotatedCount Number of rotated nodes at the start of the changed array
+     * @return Tile indexes of the rotated nodes and of the nodes whose power state differs from the start of the batch
+     * @brief Collects the nodes changed by the current batch.
+     * Nodes cut off and reconnected by the same propagation are left out.
+     */
+    private int[] delta(int rotatedCount) {
+        int[] delta = Arrays.copyOf(this.changed, this.changedCount);
+        int count = rotatedCount;
+        for (int i = rotatedCount; i < this.changedCount; i++) {
+            int index = this.changed[i];
+            if ((this.toggledMarks[index >> 6] & (1L << index)) != 0) delta[count++] = index;
+        }
+        return count == delta.length ? delta : Arrays.copyOf(delta, count);
+    }
+
+    /**
+     * @param index Tile index of the node
+     * @param sides Connector mask to set
+     * @param turns Number of player rotations to set
+     * @brief Sets the orientation of a node directly, used by the replay to jump between moves.
+     * The change is not logged; like a rotation, it is propagated when the batch is committed.
+     */
+    void restore(int index, int sides, int turns) {
+        begin();
+        try {
+            this.grid.setSides(index, sides);
+            this.grid.addTurns(index, turns - this.grid.turnCount(index));
+            this.grid.markChanged(index);
+            markChanged(index);
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * @param changes Changes to perform in a single batch
+     * @brief Performs changes in a batch, see begin() and commit().
+     */
+    public void batch(Runnable changes) {
+        begin();
+        try {
+            changes.run();
+        } finally {
+            commit();
         }
     }
 
     /**
      * @throws IllegalStateException If no power source or no bulbs are placed
      * @brief Initializes energy propagation from the power source.
+     * Recomputes the powered state of the whole board; later changes are propagated incrementally.
+     * Observers of the game receive a null event, since any node may have changed.
      */
     public void init() {
-        if (powerPlaced != null && !bulbs.isEmpty()) {
-            checkNode(new NodePosition(powerPlaced.row(), powerPlaced.col()), null);
+        if (powerPlaced != null && this.grid.bulbCount() > 0) {
+            updating = true;
+            this.grid.beginBatch();
+            try {
+                // Reset powerState of all nodes
+                for (int i = 0; i < rows * cols; i++) {
+                    if (this.grid.type(i) != POWER) {
+                        power(i, false);
+                    }
+                }
+                Arrays.fill(this.feed, NO_FEED);
+                // Update powerState of all nodes from Power
+                this.queue[0] = index(powerPlaced);
+                spread(1);
+                initialized = true;
+            } finally {
+                updating = false;
+                this.grid.endBatch();
+            }
+            // The whole board may have changed, observers refresh all nodes on a null event
             notifyObservers(null);
+            GameEvent completion = completionEvent();
+            if (completion != null) notifyObservers(completion);
         } else {
             throw new IllegalStateException("No power node placed");
         }
     }
 
     /**
-     * @param position Current position of the node being checked
-     * @param from     Side from which energy is coming (null for source)
-     * @brief Recursively checks and updates power status of nodes.
+     * @return GameEvent.COMPLETED if the game has just become complete, GameEvent.REOPENED if it has
+     * just stopped being complete, otherwise null
+     * @brief Determines the event announcing the result of the last propagation.
+     * The events are produced only once per transition, views showing the completed state refresh
+     * the whole board on either of them.
      */
-    private void checkNode(NodePosition position, NodeSide from) {
-        // Check if the position is valid
-        if (!isValidPosition(position)) {
-            return;
+    private GameEvent completionEvent() {
+        boolean wasComplete = this.complete;
+        this.complete = isComplete();
+        if (this.complete == wasComplete) return null;
+        return this.complete ? GameEvent.COMPLETED : GameEvent.REOPENED;
+    }
+
+    /**
+     * @param tail Number of powered tiles waiting in the work queue
+     * @brief Spreads energy from the queued tiles to all connected unpowered tiles.
+     * Every tile enters the queue at most once, so the queue never overflows.
+     */
+    private void spread(int tail) {
+        int head = 0;
+        while (head < tail) {
+            int current = this.queue[head++];
+            for (NodeSide side : SIDES) {
+                int next = linked(current, side);
+                if (next >= 0 && !this.grid.isPowered(next)) {
+                    power(next, true);
+                    this.feed[next] = (byte) side.opposite().ordinal();
+                    this.queue[tail++] = next;
+                }
+            }
         }
-        // Get the node at the current position
-        GameNode node = this.node(position);
-        // Check if the node can be powered and is not already powered to prevent infinite loop
-        if (from == null || (node.connects(from) && !node.isPowered())) {
-            // Update powered state
-            node.setPower(true);
-            // Continue checking adjacent nodes without going back to the previous one
-            for (NodeSide side : NodeSide.values()) {
-                if (side != from && node.connects(side)) {
-                    NodePosition newPosition = switch (side) {
-                        case NORTH -> new NodePosition(position.row() - 1, position.col());
-                        case EAST -> new NodePosition(position.row(), position.col() + 1);
-                        case SOUTH -> new NodePosition(position.row() + 1, position.col());
-                        case WEST -> new NodePosition(position.row(), position.col() - 1);
-                    };
-                    checkNode(newPosition, side.opposite());
+    }
+
+    /**
+     * @brief Incrementally updates power status after nodes changed their connections.
+     * Nodes fed through a connection that no longer exists are unpowered, then the
+     * changed nodes and the unpowered nodes are reconnected to the remaining powered
+     * region. The result is the same as a full propagation from the power source.
+     */
+    private void propagate() {
+        // Nodes whose power changes are appended to the changed array
+        int rotatedCount = this.changedCount;
+        int cutCount = 0;
+        for (int i = 0; i < rotatedCount; i++) {
+            int index = this.changed[i];
+            // The node itself lost the connection it was fed through
+            if (this.grid.isPowered(index) && this.grid.type(index) != POWER
+                    && (this.feed[index] == NO_FEED || linked(index, SIDES[this.feed[index]]) < 0)) {
+                cutCount = cutSubtree(index, cutCount);
+            }
+            // Neighbours fed through this node lost their connection
+            for (NodeSide side : SIDES) {
+                int next = neighbour(index, side);
+                if (next >= 0 && this.feed[next] == side.opposite().ordinal()
+                        && this.grid.isPowered(next) && linked(index, side) < 0) {
+                    cutCount = cutSubtree(next, cutCount);
                 }
             }
         }
+
+        // Reconnect the changed nodes and everything that was cut off
+        int tail = 0;
+        for (int i = 0; i < rotatedCount; i++) {
+            tail = reconnect(this.changed[i], tail);
+        }
+        for (int i = 0; i < cutCount; i++) {
+            if (!this.grid.isPowered(this.cut[i])) {
+                tail = reconnect(this.cut[i], tail);
+            }
+        }
+
+        // Spread energy from the reconnected nodes
+        spread(tail);
+    }
+
+    /**
+     * @param index Tile index of the node to reconnect
+     * @param tail  Number of tiles in the work queue
+     * @return New number of tiles in the work queue
+     * @brief Queues a node for spreading if it is powered or can be fed by a powered neighbour.
+     */
+    private int reconnect(int index, int tail) {
+        if (!this.grid.isPowered(index)) {
+            for (NodeSide side : SIDES) {
+                int next = linked(index, side);
+                if (next >= 0 && this.grid.isPowered(next)) {
+                    power(index, true);
+                    this.feed[index] = (byte) side.ordinal();
+                    this.queue[tail++] = index;
+                    break;
+                }
+            }
+        } else {
+            this.queue[tail++] = index;
+        }
+        return tail;
+    }
+
+    /**
+     * @param root  Tile index of the first node that lost its energy source
+     * @param count Number of tiles already stored in the cut array
+     * @return New number of tiles stored in the cut array
+     * @brief Unpowers a node and all nodes that receive energy through it.
+     * The cut array serves both as the work queue and as the result.
+     */
+    private int cutSubtree(int root, int count) {
+        int head = count;
+        power(root, false);
+        this.feed[root] = NO_FEED;
+        this.cut[count++] = root;
+        while (head < count) {
+            int current = this.cut[head++];
+            for (NodeSide side : SIDES) {
+                int next = neighbour(current, side);
+                if (next >= 0 && this.feed[next] == side.opposite().ordinal()
+                        && this.grid.isPowered(next) && this.grid.type(next) != POWER) {
+                    power(next, false);
+                    this.feed[next] = NO_FEED;
+                    this.cut[count++] = next;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param index Tile index of the node
+     * @param side  Side of the node
+     * @return Tile index of the neighbour if both nodes connect to each other, otherwise -1
+     * @brief Checks if energy can flow between a node and its neighbour.
+     */
+    private int linked(int index, NodeSide side) {
+        int next = neighbour(index, side);
+        if (next >= 0 && (this.grid.sides(index) & side.mask()) != 0
+                && (this.grid.sides(next) & side.opposite().mask()) != 0) {
+            return next;
+        }
+        return -1;
+    }
+
+    /**
+     * @param index Tile index of the node
+     * @param side  Side of the node
+     * @return Tile index of the adjacent node, or -1 if it lies outside the board
+     * @brief Returns the tile next to the given one in the given direction.
+     */
+    private int neighbour(int index, NodeSide side) {
+        return switch (side) {
+            case NORTH -> index >= cols ? index - cols : -1;
+            case EAST -> index % cols < cols - 1 ? index + 1 : -1;
+            case SOUTH -> index < (rows - 1) * cols ? index + cols : -1;
+            case WEST -> index % cols > 0 ? index - 1 : -1;
+        };
+    }
+
+    /**
+     * @param position Position of the node
+     * @return Row-major tile index of the position
+     * @brief Converts a board position to a tile index.
+     */
+    private int index(NodePosition position) {
+        return (position.row() - 1) * cols + position.col() - 1;
+    }
+
+    /**
+     * @param index   Tile index of the node
+     * @param powered New power state of the node
+     * @brief Sets the power state of a tile and notifies its observers about a change.
+     */
+    private void power(int index, boolean powered) {
+        if (this.grid.setPowered(index, powered)) {
+            this.grid.markChanged(index);
+            if (initialized) {
+                this.toggledMarks[index >> 6] ^= 1L << index;
+                markChanged(index);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,199 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Typed events of the game. Events carry primitive      #
+# coordinates of the affected nodes; the text form used #
+# in game logs is produced only when a log is written.  #
+#########################################################
+*/
+
+/**
+ * @file GameEvent.java
+ * @brief Typed events sent by the game to its observers and written to its log.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * @class GameEvent
+ * @brief Sealed hierarchy of events occurring in a game.
+ * Positions are stored as 1-based row and column numbers, the same as in NodePosition.
+ * The toString() method of loggable events returns the line written to the text game log.
+ */
+public sealed interface GameEvent extends Event {
+    /**
+     * @brief Shared instance of the event marking the end of the game generation
+     */
+    GenerationFinished GENERATION_FINISHED = new GenerationFinished();
+    /**
+     * @brief Shared instance of the event announcing that all bulbs are powered
+     */
+    Completed COMPLETED = new Completed();
+    /**
+     * @brief Shared instance of the event announcing that a completed game has an unpowered bulb again
+     */
+    Reopened REOPENED = new Reopened();
+
+    /**
+     * @param rows Number of rows on the game board
+     * @param cols Number of columns on the game board
+     * @brief A new game board was created.
+     */
+    record Created(int rows, int cols) implements GameEvent {
+        /**
+         * @return Log line of the event
+         * @brief Formats the event as a log line.
+         */
+        @Override
+        public String toString() {
+            return "G [" + rows + "@" + cols + "]";
+        }
+    }
+
+    /**
+     * @param row   Row of the node
+     * @param col   Column of the node
+     * @param type  Type of the node
+     * @param sides Mask of sides the node connects to
+     * @brief A node was placed on the board.
+     */
+    record NodeCreated(int row, int col, NodeType type, int sides) implements GameEvent {
+        /**
+         * @return Log line of the event
+         * @brief Formats the event as a log line.
+         */
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder("N {").append(type)
+                    .append('[').append(row).append('@').append(col).append("][");
+            boolean first = true;
+            for (NodeSide side : NodeSide.values()) {
+                if ((sides & side.mask()) != 0) {
+                    if (!first) line.append(',');
+                    line.append(side.name());
+                    first = false;
+                }
+            }
+            return line.append("]}").toString();
+        }
+    }
+
+    /**
+     * @param row       Row of the node
+     * @param col       Column of the node
+     * @param clockwise True for a clockwise rotation, false for a rotation back
+     * @param player    True if the rotation was performed by a player
+     * @brief A node was rotated.
+     */
+    record Rotation(int row, int col, boolean clockwise, boolean player) implements GameEvent {
+        /**
+         * @return Log line of the event
+         * @brief Formats the event as a log line.
+         */
+        @Override
+        public String toString() {
+            return "T [" + row + "@" + col + "]";
+        }
+    }
+
+    /**
+     * @param puzzle The generated puzzle
+     * @brief A game was created from a generated puzzle.
+     * The compact entry stands for the whole generation: the created board, all created nodes,
+     * their generation rotations and the end of the generation. The log lines of these events
+     * are produced only when the log is written.
+     */
+    record Generated(Puzzle puzzle) implements GameEvent {
+        /**
+         * @param out Destination of the log lines
+         * @throws IOException If writing to the destination fails
+         * @brief Writes the log lines of all events the entry stands for, each followed by a line separator.
+         */
+        public void writeLog(Appendable out) throws IOException {
+            String separator = System.lineSeparator();
+            int rows = puzzle.rows(), cols = puzzle.cols();
+            out.append(new Created(rows, cols).toString()).append(separator);
+            for (int i = 0; i < rows * cols; i++) {
+                NodeType type = puzzle.type(i);
+                if (type != NodeType.EMPTY) {
+                    out.append(new NodeCreated(i / cols + 1, i % cols + 1, type, puzzle.sides()[i]).toString())
+                            .append(separator);
+                }
+            }
+            for (int i = 0; i < rows * cols; i++) {
+                // Nodes connected to all sides are not rotated
+                if (puzzle.sides()[i] == 0x0F) continue;
+                String line = new Rotation(i / cols + 1, i % cols + 1, true, false).toString();
+                for (int t = 0; t < puzzle.turns()[i]; t++) out.append(line).append(separator);
+            }
+            out.append(GENERATION_FINISHED.toString()).append(separator);
+        }
+
+        /**
+         * @return Log lines of the entry
+         * @brief Formats the entry as log lines.
+         */
+        @Override
+        public String toString() {
+            StringBuilder lines = new StringBuilder();
+            try {
+                writeLog(lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // The last separator is added by the log writer
+            return lines.substring(0, lines.length() - System.lineSeparator().length());
+        }
+    }
+
+    /**
+     * @param tiles Row-major indexes of the nodes whose orientation or power state changed
+     * @brief The last update of the game changed the listed nodes, all other nodes are unchanged.
+     */
+    record BoardChanged(int[] tiles) implements GameEvent {
+    }
+
+    /**
+     * @brief The generation of the game finished, following rotations are made by the player.
+     */
+    record GenerationFinished() implements GameEvent {
+        /**
+         * @return Log line of the event
+         * @brief Formats the event as a log line.
+         */
+        @Override
+        public String toString() {
+            return "Gen finished";
+        }
+    }
+
+    /**
+     * @param position Index of the log entry the replay moved to
+     * @brief The replay stepped through the game log, see GameLogger.previous() and GameLogger.next().
+     * The event is written only to the autosave journal, which has to restore the replay position.
+     */
+    record LogPosition(int position) implements GameEvent {
+    }
+
+    /**
+     * @brief All bulbs of the game became powered.
+     */
+    record Completed() implements GameEvent {
+    }
+
+    /**
+     * @brief A bulb of a completed game lost its power, e.g. when the replay stepped back.
+     */
+    record Reopened() implements GameEvent {
+    }
+}
@@ -0,0 +1,282 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Autosave journal of a game. Logged actions pass       #
+# through a bounded ring buffer to a background writer, #
+# which appends them to a binary journal file, syncs it #
+# in batches and lets the last session be recovered.    #
+#########################################################
+*/
+
+/**
+ * @file GameJournal.java
+ * @brief Write-behind autosave journal of the game log.
+ */
+
+package ija.project.ijaproject.game;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @class GameJournal
+ * @brief Appends the actions of a game log to a journal file in the background.
+ * The game thread only puts actions into a bounded ring buffer and waits only when the buffer is
+ * full. A daemon thread takes all buffered actions at once, appends them to the journal in the
+ * binary log format (see GameLogWriter) and forces them to the disk once SYNC_BYTES were written
+ * or SYNC_NANOS passed since the last sync, so a crash loses at most the actions of the last
+ * interval. Replay steps are journaled as GameEvent.LogPosition records, recover() rebuilds the
+ * game with its log and replay position from the journal, ignoring a record torn by the crash.
+ *
+ * A new journal is written next to the journal file, with the TEMP_SUFFIX appended to its name, so
+ * the journal of the previous session stays recoverable until the new one holds the whole game.
+ * Once publish() was called and the actions appended before it are synced, the new journal
+ * atomically replaces the journal file and later actions are appended to it there.
+ */
+public class GameJournal implements Closeable {
+    public static final int DEFAULT_CAPACITY = 4096;       ///< Default number of actions in the ring buffer.
+    static final long SYNC_BYTES = 64 << 10;               ///< Bytes written before the journal is synced.
+    static final long SYNC_NANOS = 1_000_000_000L;         ///< Longest time unsynced actions are kept.
+    static final String TEMP_SUFFIX = ".tmp";              ///< Suffix of the new journal until it is published.
+
+    private final GameEvent[] ring;    ///< Ring buffer of actions waiting for the writer.
+    private int head = 0;              ///< Position of the oldest action in the ring buffer.
+    private int count = 0;             ///< Number of actions in the ring buffer.
+    private boolean closed = false;    ///< Set once no more actions are accepted.
+    private long appended = 0;         ///< Number of actions put into the ring buffer so far.
+    private long publishAt = -1;       ///< Number of actions to sync before publishing, -1 until publish().
+    private final Path file;           ///< The journal file, replaced once the new journal is published.
+    private final Path temp;           ///< The new journal until it is published.
+    private final FileChannel channel; ///< The journal file.
+    private final GameLogWriter writer; ///< Encoder of the actions, used only by the writer thread.
+    private final Thread thread;       ///< The background writer.
+
+    /**
+     * @param file The journal file, replaced once the new journal is published
+     * @throws IOException If the new journal cannot be created
+     * @brief Starts a new journal with a ring buffer of the default capacity.
+     */
+    public GameJournal(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param file     The journal file, replaced once the new journal is published
+     * @param capacity Number of actions the ring buffer holds
+     * @throws IOException              If the new journal cannot be created
+     * @throws IllegalArgumentException If the capacity is not positive
+     * @brief Starts a new journal and its background writer.
+     */
+    public GameJournal(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Journal capacity must be positive");
+        }
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.ring = new GameEvent[capacity];
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        this.channel = FileChannel.open(this.temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.writer = new GameLogWriter(this.channel, 0);
+        this.thread = new Thread(this::drain, "game-journal");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @param action The logged action
+     * @brief Puts an action into the ring buffer, waiting while the buffer is full.
+     * Actions appended after close() or after a write error are dropped.
+     */
+    public synchronized void append(GameEvent action) {
+        while (this.count == this.ring.length && !this.closed) {
+            try {
+                this.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (this.closed) return;
+        this.ring[(this.head + this.count) % this.ring.length] = action;
+        this.appended++;
+        // The writer waits only for an empty buffer
+        if (this.count++ == 0) this.notifyAll();
+    }
+
+    /**
+     * @brief Lets the new journal replace the journal file once the actions appended so far are synced.
+     * Called after the whole game was appended; until then a crash leaves the previous journal in place.
+     */
+    public synchronized void publish() {
+        if (this.publishAt >= 0) return;
+        this.publishAt = this.appended;
+        // The writer syncs right away instead of waiting for the sync interval
+        this.notifyAll();
+    }
+
+    /**
+     * @brief Writes and syncs all buffered actions, then stops the writer and closes the file.
+     * A journal that was never published is deleted, the journal file stays as it was.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            this.notifyAll();
+        }
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param file The journal file
+     * @return The game of the journaled session with its log and replay position, or null if the
+     * file does not exist or holds no game
+     * @brief Rebuilds the last session from a journal.
+     * The journal is read up to its last complete record. The game performs the actions up to the
+     * replay position again, the actions after it are put back into its log for the replay.
+     */
+    public static Game recover(Path file) {
+        List<GameEvent> log = new ArrayList<>();
+        int position = -1;
+        try (GameLogReader reader = new GameLogReader(FileChannel.open(file, StandardOpenOption.READ))) {
+            GameEvent event;
+            while ((event = reader.next()) != null) {
+                // Mirror GameLogger: a new action after a replay step drops the actions after the position
+                if (event instanceof GameEvent.LogPosition moved) {
+                    position = moved.position();
+                } else {
+                    log.subList(position + 1, log.size()).clear();
+                    log.add(event);
+                    position = log.size() - 1;
+                }
+            }
+        } catch (EOFException | NoSuchFileException e) {
+            // A torn record at the end of the journal, or no journal at all
+        } catch (IOException e) {
+            System.err.println("Error reading game journal: " + e.getMessage());
+            return null;
+        }
+        if (log.isEmpty()) return null;
+        try {
+            position = Math.max(0, Math.min(position, log.size() - 1));
+            Game game = GameLogReader.build(log.subList(0, position + 1));
+            for (GameEvent action : log.subList(position + 1, log.size())) {
+                game.logger().logAction(action);
+            }
+            for (int i = position + 1; i < log.size(); i++) {
+                game.logger().previous();
+            }
+            return game;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error recovering game journal: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @brief Body of the writer thread, appends the buffered actions and syncs them in batches.
+     */
+    private void drain() {
+        GameEvent[] batch = new GameEvent[this.ring.length];
+        long synced = 0;
+        long lastSync = System.nanoTime();
+        long written = 0;
+        boolean published = false;
+        try {
+            while (true) {
+                int taken;
+                boolean closing;
+                long publishAt;
+                synchronized (this) {
+                    // Wake up when the unsynced actions are due to be synced or published
+                    while (this.count == 0 && !this.closed) {
+                        long unsynced = this.channel.position() - synced;
+                        long wait = SYNC_NANOS - (System.nanoTime() - lastSync);
+                        if (unsynced > 0 && wait <= 0 || !published && this.publishAt >= 0) break;
+                        if (unsynced > 0) {
+                            this.wait(wait / 1_000_000 + 1);
+                        } else {
+                            this.wait();
+                        }
+                    }
+                    taken = this.count;
+                    for (int i = 0; i < taken; i++) {
+                        int slot = (this.head + i) % this.ring.length;
+                        batch[i] = this.ring[slot];
+                        this.ring[slot] = null;
+                    }
+                    this.head = (this.head + taken) % this.ring.length;
+                    this.count = 0;
+                    closing = this.closed;
+                    publishAt = this.publishAt;
+                    this.notifyAll();
+                }
+                for (int i = 0; i < taken; i++) {
+                    this.writer.write(batch[i]);
+                    batch[i] = null;
+                }
+                this.writer.flush();
+                written += taken;
+                boolean publishing = !published && publishAt >= 0 && written >= publishAt;
+                long bytes = this.channel.position();
+                if (bytes > synced && (closing || publishing || bytes - synced >= SYNC_BYTES
+                        || System.nanoTime() - lastSync >= SYNC_NANOS)) {
+                    this.channel.force(false);
+                    synced = bytes;
+                    lastSync = System.nanoTime();
+                }
+                if (publishing) {
+                    this.replaceFile();
+                    published = true;
+                }
+                if (closing) break;
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing game journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                this.closed = true;
+                this.count = 0;
+                this.notifyAll();
+            }
+            try {
+                this.channel.close();
+                if (!published) Files.deleteIfExists(this.temp);
+            } catch (IOException e) {
+                System.err.println("Error closing game journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @throws IOException If the journal file cannot be replaced
+     * @brief Moves the synced new journal over the journal file, the writer goes on appending to it.
+     */
+    private void replaceFile() throws IOException {
+        try {
+            Files.move(this.temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(this.temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
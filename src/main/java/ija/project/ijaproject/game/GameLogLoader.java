@@ -0,0 +1,285 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Streaming loader of the text game log. Reads the log  #
+# through a memory-mapped file, parses its tokens in    #
+# place and performs every action as it is read.        #
+#########################################################
+*/
+
+/**
+ * @file GameLogLoader.java
+ * @brief Streaming loader of game logs in the text format.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @class GameLogLoader
+ * @brief Rebuilds a game from a text log without reading the whole log into memory.
+ * The log is mapped into memory in windows of WINDOW bytes and split into tokens separated by
+ * whitespace, the same as the lines written by GameLogger. A token is only a range of the mapped
+ * window: positions, node types and side names are parsed from its bytes directly, so no strings
+ * are created while loading. Every action is performed on the game as soon as it is read:
+ * - G [rows@cols] creates the board, the log has to start with it
+ * - N {T[row@col][SIDE,...]} creates a node of type T (L, B or P) connected to the listed sides
+ * - T [row@col] rotates a node, as a player rotation once the generation finished
+ * - Gen finished ends the generation
+ *
+ * Unknown tokens are skipped and malformed nodes are reported and skipped, the same as the
+ * previous loader of the application did. Nodes and rotations outside of the board, and nodes
+ * placed on an occupied tile, are reported and skipped as well, so a damaged log never fails the load.
+ */
+public class GameLogLoader implements Closeable {
+    static final long WINDOW = 1L << 26; ///< Number of bytes mapped at once.
+    private static final NodeSide[] SIDES = NodeSide.values(); ///< Sides by their ordinal.
+
+    private final FileChannel channel; ///< The log file.
+    private final long size;           ///< Size of the log file in bytes.
+    private MappedByteBuffer buffer;   ///< Mapped window of the log file.
+    private long base = 0;             ///< Offset of the mapped window in the file.
+    private int start = 0;             ///< Start of the current token in the window.
+    private int end = 0;               ///< End of the current token in the window, exclusive.
+    private int row;                   ///< Row of the last parsed position.
+    private int col;                   ///< Column of the last parsed position.
+
+    /**
+     * @param file Text log file
+     * @throws IOException If the file cannot be opened or mapped
+     * @brief Opens a log and maps its first window.
+     */
+    public GameLogLoader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = this.channel.size();
+        this.map(0);
+    }
+
+    /**
+     * @param file Text log file
+     * @return The game rebuilt from the log, initialized and with all logged rotations performed,
+     * or null if the log does not start with the creation of the board
+     * @throws IOException If reading the file fails or the rebuilt board has no power node or no bulb
+     * @brief Loads a game from a text log file.
+     * The game logs the actions again while it is rebuilt, the same as a game loaded from a binary log.
+     */
+    public static Game load(Path file) throws IOException {
+        try (GameLogLoader loader = new GameLogLoader(file)) {
+            return loader.load();
+        }
+    }
+
+    /**
+     * @return The game rebuilt from the log, or null if the log does not start with the creation of the board
+     * @throws IOException If reading the file fails or the rebuilt board has no power node or no bulb
+     * @brief Performs all actions of the log, records that do not fit the board are reported and skipped.
+     */
+    public Game load() throws IOException {
+        if (!this.next() || !this.is("G") || !this.next() || !this.position(this.start, this.end)
+                || this.row < 1 || this.col < 1) return null;
+        Game game = new Game(this.row, this.col);
+        boolean generated = false;
+        while (this.next()) {
+            if (this.is("T")) {
+                if (this.next() && this.position(this.start, this.end)) {
+                    if (this.inside(game)) {
+                        game.node((this.row - 1) * game.cols() + this.col - 1).turn(generated);
+                    } else {
+                        System.err.println("Error parsing rotation: position outside of the board");
+                    }
+                }
+            } else if (this.is("N")) {
+                if (this.next()) this.createNode(game);
+            } else if (this.is("Gen")) {
+                game.logger().logAction(GameEvent.GENERATION_FINISHED);
+                generated = true;
+            }
+        }
+        try {
+            game.init();
+        } catch (IllegalStateException e) {
+            throw new IOException("The game log does not place a power node and a bulb", e);
+        }
+        return game;
+    }
+
+    /**
+     * @throws IOException If closing the file fails
+     * @brief Closes the log file, the mapped window is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * @return False at the end of the log
+     * @throws IOException If mapping the next window fails or a token does not fit into a window
+     * @brief Moves to the next token of the log.
+     */
+    private boolean next() throws IOException {
+        int i = this.end;
+        while (true) {
+            int limit = this.buffer.limit();
+            while (i < limit && (this.buffer.get(i) & 0xFF) <= ' ') i++;
+            if (i < limit) break;
+            if (this.base + limit >= this.size) return false;
+            this.map(this.base + i);
+            i = 0;
+        }
+        int j = i;
+        while (true) {
+            int limit = this.buffer.limit();
+            while (j < limit && (this.buffer.get(j) & 0xFF) > ' ') j++;
+            if (j < limit || this.base + limit >= this.size) break;
+            // The token continues in the next window, map the window from its start
+            if (i == 0) throw new IOException("Token longer than " + WINDOW + " bytes in the game log");
+            this.map(this.base + i);
+            j -= i;
+            i = 0;
+        }
+        this.start = i;
+        this.end = j;
+        return true;
+    }
+
+    /**
+     * @param offset Offset of the window in the file
+     * @throws IOException If mapping fails
+     * @brief Maps the window of the log starting at an offset.
+     */
+    private void map(long offset) throws IOException {
+        this.base = offset;
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, this.size - offset));
+    }
+
+    /**
+     * @param token Expected token, ASCII only
+     * @return True if the current token equals the expected one
+     * @brief Compares the current token without creating a string.
+     */
+    private boolean is(String token) {
+        if (this.end - this.start != token.length()) return false;
+        for (int i = 0; i < token.length(); i++) {
+            if (this.buffer.get(this.start + i) != token.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param from Start of the position in the window, at its opening bracket
+     * @param to   End of the position in the window, exclusive
+     * @return True if a position [row@col] was parsed into row and col
+     * @brief Parses a position from the window.
+     */
+    private boolean position(int from, int to) {
+        if (to - from < 5 || this.buffer.get(from) != '[' || this.buffer.get(to - 1) != ']') return false;
+        int at = from + 1;
+        int value = 0;
+        int digits = 0;
+        for (; at < to - 1 && this.buffer.get(at) != '@'; at++, digits++) {
+            int digit = this.buffer.get(at) - '0';
+            if (digit < 0 || digit > 9 || digits > 8) return false;
+            value = value * 10 + digit;
+        }
+        if (digits == 0 || at == to - 1) return false;
+        this.row = value;
+        value = 0;
+        digits = 0;
+        for (at++; at < to - 1; at++, digits++) {
+            int digit = this.buffer.get(at) - '0';
+            if (digit < 0 || digit > 9 || digits > 8) return false;
+            value = value * 10 + digit;
+        }
+        if (digits == 0) return false;
+        this.col = value;
+        return true;
+    }
+
+    /**
+     * @param game The game being rebuilt
+     * @brief Creates the node of the current token {T[row@col][SIDE,...]}, malformed nodes are reported and skipped.
+     */
+    private void createNode(Game game) {
+        int from = this.start, to = this.end;
+        int close = from + 2;
+        while (close < to && this.buffer.get(close) != ']') close++;
+        if (to - from < 8 || this.buffer.get(from) != '{' || this.buffer.get(to - 1) != '}'
+                || !this.position(from + 2, close + 1) || close + 2 >= to - 1 || this.buffer.get(close + 1) != '[') {
+            System.err.println("Error parsing node: malformed node");
+            return;
+        }
+        // Side names are separated by commas between the second pair of brackets
+        int sides = 0;
+        int at = close + 2;
+        while (at < to - 2) {
+            int side = this.side(at, to - 2);
+            if (side < 0) {
+                System.err.println("Error parsing node: unknown side");
+                return;
+            }
+            sides |= SIDES[side].mask();
+            at += SIDES[side].name().length() + 1;
+        }
+        if (this.buffer.get(to - 2) != ']' || sides == 0) {
+            System.err.println("Error parsing node: malformed sides");
+            return;
+        }
+        NodeType type = switch (this.buffer.get(from + 1)) {
+            case 'L' -> NodeType.LINK;
+            case 'B' -> NodeType.BULB;
+            case 'P' -> NodeType.POWER;
+            default -> null;
+        };
+        if (!this.inside(game)) {
+            System.err.println("Error parsing node: position outside of the board");
+            return;
+        }
+        if (!game.node((this.row - 1) * game.cols() + this.col - 1).is(NodeType.EMPTY)) {
+            System.err.println("Error parsing node: node already exists");
+            return;
+        }
+        if (type != null && !GameLogReader.createNode(game, new GameEvent.NodeCreated(this.row, this.col, type, sides))) {
+            System.err.println("Error parsing node: sides do not fit the node");
+        }
+    }
+
+    /**
+     * @param game The game being rebuilt
+     * @return True if the last parsed position lies on the board of the game
+     * @brief Checks the last parsed position against the board.
+     */
+    private boolean inside(Game game) {
+        return GameLogReader.inside(game, this.row, this.col);
+    }
+
+    /**
+     * @param from Start of the side name in the window
+     * @param to   End of the list of side names in the window, exclusive
+     * @return Ordinal of the side whose name is followed by a comma or the end of the list, -1 if there is none
+     * @brief Parses a side name from the window.
+     */
+    private int side(int from, int to) {
+        for (NodeSide side : SIDES) {
+            String name = side.name();
+            int after = from + name.length();
+            if (after > to || after < to && this.buffer.get(after) != ',') continue;
+            int i = 0;
+            while (i < name.length() && this.buffer.get(from + i) == name.charAt(i)) i++;
+            if (i == name.length()) return side.ordinal();
+        }
+        return -1;
+    }
+}
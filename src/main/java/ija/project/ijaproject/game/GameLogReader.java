@@ -0,0 +1,325 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Streaming reader of the binary game log. Decodes the  #
+# records written by GameLogWriter back into game       #
+# events and rebuilds games from them.                  #
+#########################################################
+*/
+
+/**
+ * @file GameLogReader.java
+ * @brief Streaming reader of game logs in the compact binary format.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodePosition;
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ija.project.ijaproject.game.GameLogWriter.*;
+
+/**
+ * @class GameLogReader
+ * @brief Reads game events from the binary log format, see GameLogWriter for the format.
+ * The header is read when the reader is created. A log that does not start with a generated
+ * board yields a Created event of the board size from the header first, so the events read
+ * back are the same as the events written.
+ */
+public class GameLogReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16; ///< Size of the input buffer in bytes.
+    private static final NodeType[] TYPES = NodeType.values(); ///< Node types by their ordinal.
+
+    private final ReadableByteChannel channel; ///< Source of the log.
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); ///< Input read from the channel, not decoded yet.
+    private final int rows;                    ///< Number of rows of the board.
+    private final int cols;                    ///< Number of columns of the board.
+    private final long seed;                   ///< Seed stored in the header.
+    private boolean started = false;          ///< True once the first event was returned.
+
+    /**
+     * @param channel Source of the log, for example a FileChannel
+     * @throws IOException If reading fails or the source is not a binary game log
+     * @brief Creates a reader of a channel and reads the header.
+     */
+    public GameLogReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.buffer.flip();
+        this.require(5);
+        if (this.buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary game log");
+        }
+        if (this.buffer.get() != VERSION) {
+            throw new IOException("Unsupported version of the binary game log");
+        }
+        this.rows = (int) this.varint();
+        this.cols = (int) this.varint();
+        this.require(8);
+        this.seed = this.buffer.getLong();
+        if (this.rows < 1 || this.cols < 1) {
+            throw new IOException("Invalid board size in the binary game log");
+        }
+    }
+
+    /**
+     * @param in Source of the log
+     * @throws IOException If reading fails or the source is not a binary game log
+     * @brief Creates a reader of an input stream and reads the header.
+     */
+    public GameLogReader(InputStream in) throws IOException {
+        this(Channels.newChannel(in));
+    }
+
+    /**
+     * @param file Binary log file
+     * @return The game rebuilt from the log, initialized and with all logged rotations replayed
+     * @throws IOException If reading fails, the file is not a binary game log or the rebuilt board
+     *                     has no power node or no bulb
+     * @brief Loads a game from a binary log file, records that do not fit the board are reported and skipped.
+     * The game logs the events again while it is rebuilt, the same as a game loaded from a text log.
+     */
+    public static Game load(Path file) throws IOException {
+        try (GameLogReader reader = new GameLogReader(FileChannel.open(file, StandardOpenOption.READ))) {
+            List<GameEvent> events = new ArrayList<>();
+            GameEvent event;
+            while ((event = reader.next()) != null) events.add(event);
+            return build(events);
+        }
+    }
+
+    /**
+     * @param events Events of a game log, starting with Created or Generated
+     * @return The game rebuilt from the events, initialized and with all rotations replayed
+     * @throws IOException If the events hold no board, or the rebuilt board has no power node or no bulb
+     * @brief Rebuilds a game by performing the logged events again.
+     * Events that do not fit the board are reported and skipped, the same as by the text loader:
+     * events before the board, another board, nodes outside of the board, on an occupied tile or
+     * without a valid connector and rotations outside of the board.
+     */
+    static Game build(List<GameEvent> events) throws IOException {
+        Game game = null;
+        for (GameEvent event : events) {
+            if (game == null) {
+                switch (event) {
+                    case GameEvent.Created created -> game = new Game(created.rows(), created.cols());
+                    case GameEvent.Generated generated -> game = new Game(generated.puzzle());
+                    default -> System.err.println("Error reading game log: record before the board");
+                }
+                continue;
+            }
+            switch (event) {
+                case GameEvent.Created ignored -> System.err.println("Error reading game log: second board");
+                case GameEvent.Generated ignored -> System.err.println("Error reading game log: second board");
+                case GameEvent.NodeCreated node -> {
+                    if (!createNode(game, node)) System.err.println("Error reading game log: invalid node " + node);
+                }
+                case GameEvent.Rotation rotation -> {
+                    if (inside(game, rotation.row(), rotation.col())) {
+                        game.node((rotation.row() - 1) * game.cols() + rotation.col() - 1).turn(rotation.player());
+                    } else {
+                        System.err.println("Error reading game log: rotation outside of the board");
+                    }
+                }
+                case GameEvent.GenerationFinished finished -> game.logger().logAction(finished);
+                default -> {
+                }
+            }
+        }
+        if (game == null) {
+            throw new IOException("The game log holds no board");
+        }
+        try {
+            game.init();
+        } catch (IllegalStateException e) {
+            throw new IOException("The game log does not place a power node and a bulb", e);
+        }
+        return game;
+    }
+
+    /**
+     * @return Number of rows of the board
+     * @brief Returns the number of rows from the header.
+     */
+    public int rows() {
+        return this.rows;
+    }
+
+    /**
+     * @return Number of columns of the board
+     * @brief Returns the number of columns from the header.
+     */
+    public int cols() {
+        return this.cols;
+    }
+
+    /**
+     * @return Seed of the game, 0 if it was not known to the writer
+     * @brief Returns the seed from the header.
+     */
+    public long seed() {
+        return this.seed;
+    }
+
+    /**
+     * @return The next event of the log, or null at the end of the log
+     * @throws IOException If reading fails or the log is corrupted
+     * @brief Reads the next event.
+     */
+    public GameEvent next() throws IOException {
+        if (!this.started) {
+            this.started = true;
+            if (!this.fill(1) || this.buffer.get(this.buffer.position()) != (BOARD << 2 | CONTROL)) {
+                return new GameEvent.Created(this.rows, this.cols);
+            }
+        }
+        if (!this.fill(1)) return null;
+        long record = this.varint();
+        int kind = (int) (record & 3);
+        long value = record >>> 2;
+        if (kind == CONTROL) {
+            if (value == BOARD) return this.readBoard();
+            if (value == GENERATION_FINISHED) return GameEvent.GENERATION_FINISHED;
+            if (value == POSITION) return new GameEvent.LogPosition((int) this.varint());
+            throw new IOException("Unknown control record in the binary game log");
+        }
+        if (value >= (long) this.rows * this.cols) {
+            throw new IOException("Tile outside of the board in the binary game log");
+        }
+        int row = (int) (value / this.cols) + 1;
+        int col = (int) (value % this.cols) + 1;
+        if (kind == NODE) {
+            this.require(1);
+            int packed = this.buffer.get() & 0xFF;
+            return new GameEvent.NodeCreated(row, col, TYPES[packed >>> 6], packed & 0x0F);
+        }
+        return new GameEvent.Rotation(row, col, true, kind == TURN);
+    }
+
+    /**
+     * @throws IOException If closing the channel fails
+     * @brief Closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * @return The event standing for the whole generated game
+     * @throws IOException If reading fails or the log ends within the board
+     * @brief Reads the packed bytes of all tiles of a generated game.
+     */
+    private GameEvent readBoard() throws IOException {
+        int n = this.rows * this.cols;
+        byte[] types = new byte[n];
+        byte[] sides = new byte[n];
+        byte[] turns = new byte[n];
+        int i = 0;
+        while (i < n) {
+            this.require(1);
+            int end = Math.min(n, i + this.buffer.remaining());
+            for (; i < end; i++) {
+                int packed = this.buffer.get() & 0xFF;
+                types[i] = (byte) (packed >>> 6);
+                turns[i] = (byte) (packed >>> 4 & 3);
+                sides[i] = (byte) (packed & 0x0F);
+            }
+        }
+        return new GameEvent.Generated(new Puzzle(this.rows, this.cols, types, sides, turns));
+    }
+
+    /**
+     * @return The decoded value
+     * @throws IOException If reading fails or the varint is too long
+     * @brief Reads a varint written by GameLogWriter.
+     */
+    private long varint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            this.require(1);
+            byte b = this.buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Malformed varint in the binary game log");
+    }
+
+    /**
+     * @param bytes Number of bytes needed in the buffer
+     * @throws IOException If reading fails or the log ends earlier
+     * @brief Reads from the channel until the buffer holds the given number of bytes, within a record.
+     */
+    private void require(int bytes) throws IOException {
+        if (!this.fill(bytes)) throw new EOFException("Unexpected end of the binary game log");
+    }
+
+    /**
+     * @param bytes Number of bytes needed in the buffer
+     * @return False if the log ended before the bytes could be read
+     * @throws IOException If reading fails
+     * @brief Reads from the channel until the buffer holds the given number of bytes.
+     */
+    private boolean fill(int bytes) throws IOException {
+        while (this.buffer.remaining() < bytes) {
+            this.buffer.compact();
+            int read = this.channel.read(this.buffer);
+            this.buffer.flip();
+            if (read < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param game The game being rebuilt
+     * @param node The logged node
+     * @return False if the node was not placed: it lies outside of the board or on an occupied tile,
+     * has no connector or does not fit its type, for example a second power node
+     * @brief Creates a logged node through the public methods of the game, the same as the text log.
+     */
+    static boolean createNode(Game game, GameEvent.NodeCreated node) {
+        if (!inside(game, node.row(), node.col()) || (node.sides() & 0x0F) == 0
+                || !game.node((node.row() - 1) * game.cols() + node.col() - 1).is(NodeType.EMPTY)) {
+            return false;
+        }
+        NodeSide[] sides = new NodeSide[Integer.bitCount(node.sides() & 0x0F)];
+        int count = 0;
+        for (NodeSide side : NodeSide.values()) {
+            if ((node.sides() & side.mask()) != 0) sides[count++] = side;
+        }
+        NodePosition position = new NodePosition(node.row(), node.col());
+        return switch (node.type()) {
+            case LINK -> game.createLinkNode(position, sides) != null;
+            case BULB -> game.createBulbNode(position, sides[0]) != null;
+            case POWER -> game.createPowerNode(position, sides) != null;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param game The game being rebuilt
+     * @param row  Row of a logged position
+     * @param col  Column of a logged position
+     * @return True if the position lies on the board of the game
+     * @brief Checks a logged position against the board.
+     */
+    static boolean inside(Game game, int row, int col) {
+        return row >= 1 && row <= game.rows() && col >= 1 && col <= game.cols();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Streaming writer of the binary game log. Packs every  #
+# node into one byte and every rotation into a varint,  #
+# buffering the output for a stream or a file channel.  #
+#########################################################
+*/
+
+/**
+ * @file GameLogWriter.java
+ * @brief Streaming writer of game logs in the compact binary format.
+ */
+
+package ija.project.ijaproject.game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * @class GameLogWriter
+ * @brief Writes game events in the binary log format, see GameLogReader for reading them back.
+ * The log starts with a header: the magic number, the format version, the number of rows and
+ * columns as varints and the seed of the game as 8 bytes. The first event of the log, Created or
+ * Generated, provides the board size, so the header is written together with it.
+ *
+ * Every following record starts with a varint whose two lowest bits give the kind of the record
+ * and whose other bits give a row-major tile index or a control code:
+ * - TURN and GENERATION_TURN, a rotation made by the player or by the generation of the game
+ * - NODE, a created node, followed by its packed byte
+ * - CONTROL, code BOARD followed by the packed bytes of all tiles in row-major order, standing for
+ *   a whole generated game, code GENERATION_FINISHED, or code POSITION followed by the replay
+ *   position as a varint
+ *
+ * A packed byte holds the ordinal of the NodeType in its two highest bits, the generation rotations
+ * in the next two bits and the connector mask of the solved node in the lowest four bits.
+ */
+public class GameLogWriter implements Closeable {
+    static final int MAGIC = 0x4C42_4C47;     ///< Magic number at the start of every binary log ("LBLG").
+    static final byte VERSION = 1;            ///< Version of the binary log format.
+    static final int TURN = 0;                ///< Record kind of a rotation made by the player.
+    static final int GENERATION_TURN = 1;     ///< Record kind of a rotation made by the generation.
+    static final int NODE = 2;                ///< Record kind of a created node.
+    static final int CONTROL = 3;             ///< Record kind of the control codes.
+    static final int BOARD = 0;               ///< Control code of all nodes of a generated game.
+    static final int GENERATION_FINISHED = 1; ///< Control code of the end of the generation.
+    static final int POSITION = 2;            ///< Control code of a replay position, followed by it as a varint.
+    private static final int BUFFER_SIZE = 1 << 16; ///< Size of the output buffer in bytes.
+
+    private final WritableByteChannel channel; ///< Destination of the log.
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); ///< Output not written to the channel yet.
+    private final long seed;                   ///< Seed stored in the header.
+    private int cols = -1;                     ///< Number of columns of the board, -1 before the header.
+
+    /**
+     * @param channel Destination of the log, for example a FileChannel
+     * @param seed    Seed of the game stored in the header, 0 if it is not known
+     * @brief Creates a writer of a channel.
+     */
+    public GameLogWriter(WritableByteChannel channel, long seed) {
+        this.channel = channel;
+        this.seed = seed;
+    }
+
+    /**
+     * @param out  Destination of the log
+     * @param seed Seed of the game stored in the header, 0 if it is not known
+     * @brief Creates a writer of an output stream.
+     */
+    public GameLogWriter(OutputStream out, long seed) {
+        this(Channels.newChannel(out), seed);
+    }
+
+    /**
+     * @param event Event of the game log
+     * @throws IOException           If writing to the destination fails
+     * @throws IllegalStateException If the first event does not create the board
+     * @brief Appends an event to the log.
+     * Events that do not belong to the game log, such as power changes, are skipped.
+     */
+    public void write(GameEvent event) throws IOException {
+        switch (event) {
+            case GameEvent.Created created -> this.header(created.rows(), created.cols());
+            case GameEvent.Generated generated -> this.writeBoard(generated.puzzle());
+            case GameEvent.NodeCreated node -> {
+                this.varint((long) this.tile(node.row(), node.col()) << 2 | NODE);
+                this.ensure(1);
+                this.buffer.put(pack(node.type().ordinal(), 0, node.sides()));
+            }
+            case GameEvent.Rotation rotation ->
+                    this.varint((long) this.tile(rotation.row(), rotation.col()) << 2
+                            | (rotation.player() ? TURN : GENERATION_TURN));
+            case GameEvent.GenerationFinished ignored -> this.varint(GENERATION_FINISHED << 2 | CONTROL);
+            case GameEvent.LogPosition moved -> {
+                this.varint(POSITION << 2 | CONTROL);
+                this.varint(moved.position());
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * @throws IOException If writing to the destination fails
+     * @brief Writes all buffered output to the channel.
+     */
+    public void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * @throws IOException If writing to the destination fails
+     * @brief Flushes the buffered output and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * @param type  Ordinal of the NodeType
+     * @param turns Generation rotations, 0 to 3
+     * @param sides Connector mask of the solved node
+     * @return The packed byte of a tile
+     * @brief Packs a tile into one byte.
+     */
+    static byte pack(int type, int turns, int sides) {
+        return (byte) (type << 6 | (turns & 3) << 4 | sides & 0x0F);
+    }
+
+    /**
+     * @param puzzle The generated puzzle
+     * @throws IOException If writing to the destination fails
+     * @brief Writes the header if it is missing and the packed bytes of all tiles of a generated game.
+     */
+    private void writeBoard(Puzzle puzzle) throws IOException {
+        this.header(puzzle.rows(), puzzle.cols());
+        this.varint(BOARD << 2 | CONTROL);
+        int n = puzzle.rows() * puzzle.cols();
+        for (int i = 0; i < n; i++) {
+            if (!this.buffer.hasRemaining()) this.flush();
+            // Nodes connected to all sides are not rotated, the same as in the text log
+            int turns = puzzle.sides()[i] == 0x0F ? 0 : puzzle.turns()[i];
+            this.buffer.put(pack(puzzle.types()[i], turns, puzzle.sides()[i]));
+        }
+    }
+
+    /**
+     * @param rows Number of rows on the board
+     * @param cols Number of columns on the board
+     * @throws IOException If writing to the destination fails
+     * @brief Writes the header before the first event, the header is written only once.
+     */
+    private void header(int rows, int cols) throws IOException {
+        if (this.cols >= 0) return;
+        this.cols = cols;
+        this.ensure(32);
+        this.buffer.putInt(MAGIC).put(VERSION);
+        this.varint(rows);
+        this.varint(cols);
+        this.buffer.putLong(this.seed);
+    }
+
+    /**
+     * @param row Row of the node
+     * @param col Column of the node
+     * @return Row-major tile index of the node
+     * @throws IllegalStateException If the header was not written yet
+     * @brief Converts a position to a tile index.
+     */
+    private int tile(int row, int col) {
+        if (this.cols < 0) {
+            throw new IllegalStateException("The log has to start with the creation of the board");
+        }
+        return (row - 1) * this.cols + col - 1;
+    }
+
+    /**
+     * @param value Non-negative value
+     * @throws IOException If writing to the destination fails
+     * @brief Writes a value as a varint, 7 bits per byte with the highest bit set on all but the last byte.
+     */
+    private void varint(long value) throws IOException {
+        this.ensure(10);
+        while ((value & ~0x7F) != 0) {
+            this.buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    /**
+     * @param bytes Number of bytes about to be written
+     * @throws IOException If writing to the destination fails
+     * @brief Flushes the buffer if it cannot hold the given number of bytes.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) this.flush();
+    }
+}
@@ -8,6 +8,10 @@
 # functionality. Allows tracking user interactions,     #
 # saving logs to a file, and stepping through actions   #
 # for replay or debugging. Using observation of game.   #
+# Logs are saved as text or in a compact binary format, #
+# or autosaved to a journal while the game is played.   #
+# Actions are stored as packed ints in chunks, so a     #
+# replay cut short is truncated in constant time.       #
 #########################################################
 */
 /**
@@ -17,28 +21,57 @@
 
 package ija.project.ijaproject.game;
 
+import ija.project.ijaproject.common.Event;
 import ija.project.ijaproject.common.Observable;
+import ija.project.ijaproject.game.node.NodeType;
 import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+
+import static ija.project.ijaproject.game.GameLogWriter.*;
 
 /**
  * @class GameLogger
  * @brief Provides functionality for logging game actions, saving logs, and replaying actions.
  * The GameLogger class maintains a log of game actions, allows saving the log to a file,
  * and supports replaying actions by navigating through the log.
+ *
+ * Every action is stored as one int in chunks of CHUNK_SIZE entries, using the record kinds of the
+ * binary log (see GameLogWriter): a rotation is its row-major tile index and kind, a created node
+ * additionally holds its packed byte. Actions that do not fit into an int, such as the creation of
+ * the board, are kept as objects and referenced by their index. The log ends at a logical end
+ * pointer, so the actions dropped by a new action in the middle of a replay are cut off in constant
+ * time and the chunks beyond the end are released as the log grows again.
  */
 public class GameLogger implements Observable.Observer {
-    private final List<String> log = new ArrayList<>();  /// < List of logged actions.
-    private int position = 0; /// < Current position in the log for replay.
+    private static final int CHUNK_BITS = 12; ///< Binary logarithm of the number of entries in a chunk.
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; ///< Number of entries in a chunk.
+    private static final int OBJECT = 2;      ///< First control code referencing an action kept as an object.
+    private static final int MAX_NODE_TILE = (1 << 22) - 1; ///< Largest tile index of a packed created node.
+    private static final NodeType[] TYPES = NodeType.values(); ///< Node types by their ordinal.
+
+    private int[][] chunks = new int[16][]; ///< Chunks of packed actions, allocated up to chunkCount.
+    private int chunkCount = 0;             ///< Number of allocated chunks.
+    private int end = 0;                    ///< Number of actions in the log.
+    private final List<GameEvent> objects = new ArrayList<>(); ///< Actions that are not packed.
+    private int cols = -1;                  ///< Number of columns of the logged board, -1 before it is created.
+    private int replayStart = -1;           ///< Index of the last logged action that is not a rotation.
+    private int revision = 0;               ///< Number of changes of the logged actions.
+    private int position = 0;               ///< Current position in the log for replay.
     private boolean enabled = true; ///< Flag indicating whether logging is enabled.
+    private GameJournal journal = null; ///< Autosave journal receiving every logged action, or null.
 
     /**
      * @brief Default constructor for GameLogger.
@@ -52,49 +85,219 @@ public class GameLogger implements Observable.Observer {
      * @brief Updates the logger with a new event.
      */
     @Override
-    public void update(Observable var1, String event) {
-        if (event != null) logAction(event);
+    public void update(Observable var1, Event event) {
+        if (event instanceof GameEvent action) logAction(action);
     }
 
     /**
-     * @param description Description of the action to log.
+     * @param action The action to log.
      * @brief Logs a new action.
+     * The action is converted to text only when the log is saved.
      */
-    public void logAction(String description) {
+    public void logAction(GameEvent action) {
         if (!enabled) return;
         // If we're in the middle of a replay, truncate future actions
-        if (position < log.size() - 1) {
-            log.subList(position + 1, log.size()).clear();
+        if (position < end - 1) {
+            end = position + 1;
+            while (chunkCount > (end >> CHUNK_BITS) + 1) chunks[--chunkCount] = null;
+            if (replayStart >= end) {
+                // The replay does not step back over other actions than rotations, only a log changed by hand gets here
+                replayStart = end - 1;
+                while (replayStart >= 0 && (entry(replayStart) & 3) < NODE) replayStart--;
+                // Objects are not rotations, so the dropped actions hold objects only if the replay start moved
+                int last = replayStart;
+                while (last >= 0 && !isObject(entry(last))) last--;
+                objects.subList(last < 0 ? 0 : (entry(last) >>> 2) - OBJECT + 1, objects.size()).clear();
+            }
         }
-        log.add(description);
-        position = log.size() - 1;
+        if (end >> CHUNK_BITS == chunkCount) {
+            if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            chunks[chunkCount++] = new int[CHUNK_SIZE];
+        }
+        int entry = pack(action);
+        chunks[end >> CHUNK_BITS][end & CHUNK_SIZE - 1] = entry;
+        if ((entry & 3) >= NODE) replayStart = end;
+        position = end++;
+        revision++;
+        if (journal != null) journal.append(action);
+    }
+
+    /**
+     * @param action The action to store.
+     * @return The packed entry of the action.
+     * @brief Packs an action into one int, actions that do not fit are kept as objects.
+     */
+    private int pack(GameEvent action) {
+        switch (action) {
+            case GameEvent.Rotation rotation when cols > 0 -> {
+                return tile(rotation.row(), rotation.col()) << 2 | (rotation.player() ? TURN : GENERATION_TURN);
+            }
+            case GameEvent.NodeCreated node when cols > 0 && tile(node.row(), node.col()) <= MAX_NODE_TILE -> {
+                return tile(node.row(), node.col()) << 10
+                        | (GameLogWriter.pack(node.type().ordinal(), 0, node.sides()) & 0xFF) << 2 | NODE;
+            }
+            case GameEvent.GenerationFinished ignored -> {
+                return GENERATION_FINISHED << 2 | CONTROL;
+            }
+            default -> {
+            }
+        }
+        if (action instanceof GameEvent.Created created) cols = created.cols();
+        if (action instanceof GameEvent.Generated generated) cols = generated.puzzle().cols();
+        objects.add(action);
+        return (OBJECT + objects.size() - 1) << 2 | CONTROL;
+    }
+
+    /**
+     * @param index Index of the action in the log.
+     * @return The logged action.
+     * @throws IndexOutOfBoundsException If there is no such action.
+     * @brief Unpacks an action of the log.
+     */
+    public GameEvent action(int index) {
+        Objects.checkIndex(index, end);
+        int entry = entry(index);
+        int kind = entry & 3;
+        int value = entry >>> 2;
+        return switch (kind) {
+            case TURN, GENERATION_TURN -> new GameEvent.Rotation(value / cols + 1, value % cols + 1, true, kind == TURN);
+            case NODE -> new GameEvent.NodeCreated((value >>> 8) / cols + 1, (value >>> 8) % cols + 1,
+                    TYPES[value >>> 6 & 3], value & 0x0F);
+            default -> value == GENERATION_FINISHED ? GameEvent.GENERATION_FINISHED : objects.get(value - OBJECT);
+        };
+    }
+
+    /**
+     * @param entry A packed entry of the log.
+     * @return True if the entry references an action kept as an object.
+     * @brief Checks the kind of a packed entry.
+     */
+    private static boolean isObject(int entry) {
+        return (entry & 3) == CONTROL && entry >>> 2 >= OBJECT;
+    }
+
+    /**
+     * @return Number of actions kept as objects.
+     * @brief Returns how many logged actions are not packed.
+     */
+    int objectCount() {
+        return objects.size();
+    }
+
+    /**
+     * @param index Index of the action in the log.
+     * @return The packed entry of the action.
+     * @brief Reads a packed entry of the log.
+     */
+    private int entry(int index) {
+        return chunks[index >> CHUNK_BITS][index & CHUNK_SIZE - 1];
+    }
+
+    /**
+     * @param index Index of the action in the log.
+     * @return Row-major tile index of the rotated node, shifted left by one, with the lowest bit set
+     * for a rotation of the player, or -1 if the action is not a rotation.
+     * @brief Reads a rotation of the log without unpacking it, used by the replay.
+     */
+    public int rotation(int index) {
+        Objects.checkIndex(index, end);
+        int entry = entry(index);
+        return (entry & 3) < NODE ? (entry >>> 2) << 1 | ((entry & 3) == TURN ? 1 : 0) : -1;
+    }
+
+    /**
+     * @return Number of logged actions.
+     * @brief Returns the length of the log.
+     */
+    public int size() {
+        return end;
+    }
+
+    /**
+     * @return Index of the current action.
+     * @brief Returns the current position of the replay.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return Index of the last logged action that is not a rotation, -1 if there is none.
+     * @brief Returns where the moves of the replay start, all later actions are rotations.
+     */
+    public int replayStart() {
+        return replayStart;
+    }
+
+    /**
+     * @return Number of changes of the logged actions.
+     * @brief Returns a counter that changes whenever an action is logged or the log is cleared,
+     * but not when the replay position moves.
+     */
+    public int revision() {
+        return revision;
+    }
+
+    /**
+     * @param row Row of the node.
+     * @param col Column of the node.
+     * @return Row-major tile index of the node.
+     * @brief Converts a position to a tile index.
+     */
+    private int tile(int row, int col) {
+        return (row - 1) * cols + col - 1;
+    }
+
+    /**
+     * @param journal The journal to autosave to, or null to stop autosaving.
+     * @brief Autosaves the log to a journal.
+     * The actions logged so far and the replay position are put into the journal first, so the
+     * journal alone is enough to recover the game, see GameJournal.recover(). The journal is
+     * published after them, so it replaces the previous journal file only once it holds the game.
+     */
+    public void journal(GameJournal journal) {
+        this.journal = journal;
+        if (journal == null) return;
+        for (int i = 0; i < end; i++) {
+            journal.append(action(i));
+        }
+        if (position < end - 1) journal.append(new GameEvent.LogPosition(position));
+        journal.publish();
     }
 
     /**
      * @brief Clears the log and resets the position.
      */
     public void clear() {
-        this.log.clear();
+        this.chunks = new int[16][];
+        this.chunkCount = 0;
+        this.end = 0;
+        this.objects.clear();
+        this.cols = -1;
+        this.replayStart = -1;
+        this.revision++;
         this.position = 0;
     }
 
     /**
-     * @return The current log line as a string.
-     * @brief Retrieves the current log line.
+     * @return The current logged action.
+     * @brief Retrieves the action at the current log position.
      */
-    public String getLine() {
-        return log.get(position);
+    public GameEvent getAction() {
+        return action(position);
     }
 
     /**
      * @brief Saves the log to a file.
-     * Opens a file chooser dialog to select the save location and writes the log to the selected file.
+     * Opens a file chooser dialog to select the save location and writes the log to the selected file,
+     * files with the .blog extension are written in the binary format.
      */
     public void save() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Game Log");
-        fileChooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Game Log Files", "*.log")
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Game Log Files", "*.log"),
+                new FileChooser.ExtensionFilter("Binary Game Log Files", "*.blog")
         );
 
         // Generate default filename with timestamp
@@ -102,17 +305,56 @@ public class GameLogger implements Observable.Observer {
         fileChooser.setInitialFileName("bulbGame_" + timestamp);
 
         File file = fileChooser.showSaveDialog(null);
-        if (file != null) {
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                for (String action : this.log) {
-                    writer.println(action);
-                }
+        if (file != null && file.getName().endsWith(".blog")) {
+            try {
+                saveBinary(file.toPath());
+            } catch (IOException e) {
+                System.err.println("Error saving game log: " + e.getMessage());
+            }
+        } else if (file != null) {
+            try {
+                saveText(file.toPath());
             } catch (IOException e) {
                 System.err.println("Error saving game log: " + e.getMessage());
             }
         }
     }
 
+    /**
+     * @param file The file to write.
+     * @throws IOException If writing the file fails.
+     * @brief Writes the log to a file in the text format, one action per line, see GameLogLoader.
+     */
+    public void saveText(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file.toFile()))) {
+            for (int i = 0; i < end; i++) {
+                GameEvent action = action(i);
+                // Generated games are written line by line instead of as one large string
+                if (action instanceof GameEvent.Generated generated) {
+                    generated.writeLog(writer);
+                } else {
+                    writer.println(action);
+                }
+            }
+            if (writer.checkError()) throw new IOException("Writing the game log failed");
+        }
+    }
+
+    /**
+     * @param file The file to write.
+     * @throws IOException If writing the file fails.
+     * @brief Writes the log to a file in the binary format, see GameLogWriter.
+     * The seed of the game is not known to the log, the header stores 0 instead.
+     */
+    public void saveBinary(Path file) throws IOException {
+        try (GameLogWriter writer = new GameLogWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 0)) {
+            for (int i = 0; i < end; i++) {
+                writer.write(action(i));
+            }
+        }
+    }
+
     /**
      * @return True if the position was moved, false otherwise.
      * @brief Moves to the previous log entry.
@@ -120,6 +362,7 @@ public class GameLogger implements Observable.Observer {
     public boolean previous() {
         if (position > 0) {
             position--;
+            if (journal != null) journal.append(new GameEvent.LogPosition(position));
             return true;
         }
         return false;
@@ -130,13 +373,26 @@ public class GameLogger implements Observable.Observer {
      * @brief Moves to the next log entry.
      */
     public boolean next() {
-        if (position < log.size() - 1) {
+        if (position < end - 1) {
             position++;
+            if (journal != null) journal.append(new GameEvent.LogPosition(position));
             return true;
         }
         return false;
     }
 
+    /**
+     * @param position Index of the action to move to.
+     * @throws IndexOutOfBoundsException If there is no such action.
+     * @brief Moves the replay position directly, used by the replay to jump to a move.
+     */
+    public void seek(int position) {
+        Objects.checkIndex(position, end);
+        if (this.position == position) return;
+        this.position = position;
+        if (journal != null) journal.append(new GameEvent.LogPosition(position));
+    }
+
     /**
      * @brief Disables logging.
      */
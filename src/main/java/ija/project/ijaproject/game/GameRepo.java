@@ -5,10 +5,13 @@
 #              Logins: xurbana00, xkovacm01             #
 #                     Description:                      #
 # Game board and puzzle generator. Provides maze        #
-# generation using Prim's algorithm based on difficulty #
-# levels, builds node connections and creates power,    #
-# bulb, and link nodes. Also handles randomized node    #
-# rotations for added challenge.                        #
+# generation using pluggable strategies (Prim's         #
+# algorithm by default) based on difficulty levels,     #
+# builds node connections and creates power, bulb, and  #
+# link nodes. Also handles randomized node rotations    #
+# for added challenge. Batches of puzzles are           #
+# generated in parallel from a seed, reproducibly, and  #
+# can be verified and rated by the solver on the way.   #
 #########################################################
 */
 
@@ -19,30 +22,29 @@
 
 package ija.project.ijaproject.game;
 
-import ija.project.ijaproject.game.node.NodePosition;
-import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.maze.MazeGenerator;
+import ija.project.ijaproject.game.maze.PrimMaze;
+import ija.project.ijaproject.game.solver.Solver;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
 
-import static ija.project.ijaproject.game.node.NodeSide.*;
-import static ija.project.ijaproject.game.node.NodeType.EMPTY;
+import static ija.project.ijaproject.game.node.NodeType.*;
 
 /**
  * @class GameRepo
  * @brief Handles the generation of game boards and puzzles based on difficulty levels.
- * The GameRepo class provides methods to generate game boards using Prim's algorithm,
+ * The GameRepo class provides methods to generate game boards using a MazeGenerator strategy,
  * create nodes, and randomize node rotations to increase difficulty.
  */
 public class GameRepo {
-    private static final Map<String, int[]> BOARD_SIZES = new HashMap<>();
-
-    ///< Predefined board sizes for each difficulty level.
-
-    static {
-        BOARD_SIZES.put("Easy", new int[]{4, 4});
-        BOARD_SIZES.put("Medium", new int[]{8, 8});
-        BOARD_SIZES.put("Hard", new int[]{16, 16});
-    }
+    private static final Set<String> DIFFICULTIES =
+            Collections.unmodifiableSet(new LinkedHashSet<>(List.of("Easy", "Medium", "Hard")));
+    ///< Predefined difficulty levels, see GenerationProfile.of().
+    private static final MazeGenerator DEFAULT_GENERATOR = new PrimMaze(); ///< Maze generation strategy used by default.
+    public static final long RATING_NODE_LIMIT = 100_000; ///< Search nodes after which rating a puzzle gives up.
 
     /**
      * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
@@ -50,208 +52,229 @@ public class GameRepo {
      * @brief Generates a new game based on the specified difficulty.
      */
     public static Game generate(String difficulty) {
-        int[] size = BOARD_SIZES.getOrDefault(difficulty, new int[]{8, 8});
-        int rows = size[0];
-        int cols = size[1];
-
-        Game game = new Game(rows, cols);
-
-        // Generate a maze using Prim's algorithm
-        generateMaze(game, difficulty);
-
-        // Initialize the game
-        game.init();
-        game.logger().logAction("Gen finished");
-
-        return game;
+        return generate(GenerationProfile.of(difficulty, new SplittableRandom().nextLong()));
     }
 
     /**
-     * @param game       The Game instance to populate.
-     * @param difficulty The difficulty level.
-     * @brief Generates a maze using Prim's algorithm.
+     * @param profile The parameters of the generation.
+     * @return A new Game instance.
+     * @brief Generates a new game described by a generation profile.
      */
-    private static void generateMaze(Game game, String difficulty) {
-        Random rand = new Random();
-        int rows = game.rows();
-        int cols = game.cols();
-
-        boolean[][] visited = new boolean[rows][cols];
-        PriorityQueue<int[]> frontier = new PriorityQueue<>(Comparator.comparingInt(a -> a[4]));
-
-        int startRow = rand.nextInt(rows) + 1;
-        int startCol = rand.nextInt(cols) + 1;
-        NodePosition startPos = new NodePosition(startRow, startCol);
-
-        Map<NodePosition, Set<NodeSide>> connections = new HashMap<>();
-        connections.put(startPos, new HashSet<>());
-
-        visited[startRow - 1][startCol - 1] = true;
-
-        addNeighborsToFrontier(frontier, startRow, startCol, rows, cols, visited, rand);
-
-        int edgeLimit = switch (difficulty) {
-            case "Easy" -> rows * cols / 2;
-            case "Medium" -> rows * cols * 3 / 4;
-            case "Hard" -> rows * cols;
-            default -> rows * cols / 2;
-        };
-
-        int edgeCount = 0;
+    public static Game generate(GenerationProfile profile) {
+        return generatePuzzle(profile).toGame();
+    }
 
-        while (!frontier.isEmpty() && edgeCount < edgeLimit) {
-            int[] next = frontier.poll();
-            int row = next[0], col = next[1];
-            int fromRow = next[2], fromCol = next[3];
+    /**
+     * @param profile The parameters of the generation.
+     * @return A descriptor of the generated puzzle.
+     * @brief Generates a puzzle described by a generation profile.
+     * The same profile always produces the same puzzle.
+     */
+    public static Puzzle generatePuzzle(GenerationProfile profile) {
+        return generatePuzzle(profile, DEFAULT_GENERATOR);
+    }
 
-            if (visited[row - 1][col - 1]) continue;
+    /**
+     * @param profile   The parameters of the generation.
+     * @param generator The maze generation strategy.
+     * @return A descriptor of the generated puzzle.
+     * @brief Generates a puzzle described by a generation profile on a maze created by the given strategy.
+     */
+    public static Puzzle generatePuzzle(GenerationProfile profile, MazeGenerator generator) {
+        return generateMaze(profile, generator, new SplittableRandom(profile.seed()));
+    }
 
-            visited[row - 1][col - 1] = true;
-            edgeCount++;
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
+     * @param rand       Random number generator, the only source of randomness of the generation.
+     * @return A descriptor of the generated puzzle.
+     * @brief Generates a puzzle without creating a game.
+     * The same sequence of random numbers always produces the same puzzle.
+     */
+    public static Puzzle generatePuzzle(String difficulty, RandomGenerator rand) {
+        return generatePuzzle(difficulty, DEFAULT_GENERATOR, rand);
+    }
 
-            NodePosition pos = new NodePosition(row, col);
-            NodePosition fromPos = new NodePosition(fromRow, fromCol);
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
+     * @param generator  The maze generation strategy.
+     * @param rand       Random number generator, the only source of randomness of the generation.
+     * @return A descriptor of the generated puzzle.
+     * @brief Generates a puzzle on a maze created by the given strategy.
+     * The seed of the difficulty profile is not used, all random numbers come from the given generator.
+     */
+    public static Puzzle generatePuzzle(String difficulty, MazeGenerator generator, RandomGenerator rand) {
+        return generateMaze(GenerationProfile.of(difficulty, 0), generator, rand);
+    }
 
-            NodeSide fromToCurrentSide = getSide(fromRow, fromCol, row, col);
-            NodeSide currentToFromSide = fromToCurrentSide.opposite();
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
+     * @param count      Number of puzzles to generate.
+     * @param seed       Seed of the whole batch.
+     * @return Descriptors of the generated puzzles.
+     * @brief Generates a batch of puzzles in parallel.
+     * Every puzzle gets its own random stream split from the seed in advance, in the order of the
+     * puzzles, so the result depends only on the seed and not on the number of threads.
+     */
+    public static List<Puzzle> generateBatch(String difficulty, int count, long seed) {
+        return generateBatch(GenerationProfile.of(difficulty, seed), count);
+    }
 
-            connections.putIfAbsent(pos, new HashSet<>());
-            connections.putIfAbsent(fromPos, new HashSet<>());
-            connections.get(pos).add(currentToFromSide);
-            connections.get(fromPos).add(fromToCurrentSide);
+    /**
+     * @param profile The parameters of the generation, its seed is the seed of the whole batch.
+     * @param count   Number of puzzles to generate.
+     * @return Descriptors of the generated puzzles.
+     * @brief Generates a batch of puzzles described by a generation profile in parallel.
+     * Every puzzle gets its own random stream split from the seed in advance, in the order of the
+     * puzzles, so the result depends only on the seed and not on the number of threads.
+     */
+    public static List<Puzzle> generateBatch(GenerationProfile profile, int count) {
+        SplittableRandom[] streams = splitStreams(profile.seed(), count);
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> generateMaze(profile, DEFAULT_GENERATOR, streams[i]))
+                .toList();
+    }
 
-            addNeighborsToFrontier(frontier, row, col, rows, cols, visited, rand);
+    /**
+     * @param profile The parameters of the generation, its seed is the seed of the whole batch.
+     * @param count   Number of puzzles to generate.
+     * @param limit   Number of solutions after which the counting stops, 2 decides uniqueness.
+     * @return Descriptors of the generated puzzles with their numbers of solutions and difficulty.
+     * @throws IllegalArgumentException If the limit is smaller than 1.
+     * @brief Generates a batch of puzzles in parallel and verifies every one by the solver.
+     * The puzzles are the same as those of generateBatch() with the same profile, each one is
+     * rated by the thread that generated it, right after its generation. Puzzles whose counting
+     * needs more than RATING_NODE_LIMIT search nodes stay unrated.
+     */
+    public static List<RatedPuzzle> generateRatedBatch(GenerationProfile profile, int count, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The solution limit must be at least 1");
         }
-
-        createNodes(game, connections, startPos, difficulty);
-        randomizeRotations(game);
+        SplittableRandom[] streams = splitStreams(profile.seed(), count);
+        return IntStream.range(0, count).parallel()
+                .mapToObj(i -> generateMaze(profile, DEFAULT_GENERATOR, streams[i]))
+                .map(puzzle -> new RatedPuzzle(puzzle, Solver.of(puzzle).rate(limit, RATING_NODE_LIMIT)))
+                .toList();
     }
 
     /**
-     * @param frontier The priority queue of frontier cells.
-     * @param row      The current row.
-     * @param col      The current column.
-     * @param rows     Total number of rows.
-     * @param cols     Total number of columns.
-     * @param visited  The visited cells grid.
-     * @param rand     Random number generator.
-     * @brief Adds neighboring cells to the frontier for Prim's algorithm.
+     * @param profile  The parameters of the generation.
+     * @param attempts Most puzzles to generate, at least 1.
+     * @return The first generated puzzle with a unique solution, or the first one generated if none
+     * is unique, with its rating.
+     * @throws IllegalArgumentException If the number of attempts is smaller than 1.
+     * @brief Generates puzzles until the solver proves one to have a unique solution.
+     * All attempts draw from one random stream seeded by the profile, so the first attempt is the
+     * puzzle of generatePuzzle() and the result depends only on the profile. The generator leaves
+     * the unused dead ends empty and links next to them may point there in several ways, so the
+     * larger the board, the fewer generated puzzles are unique; when no attempt is, the puzzle
+     * of generatePuzzle() is kept rather than failing the generation.
      */
-    private static void addNeighborsToFrontier(
-            PriorityQueue<int[]> frontier, int row, int col,
-            int rows, int cols, boolean[][] visited, Random rand) {
-
-        int[][] dirs = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
-
-        for (int[] dir : dirs) {
-            int newRow = row + dir[0];
-            int newCol = col + dir[1];
-
-            if (newRow >= 1 && newRow <= rows &&
-                    newCol >= 1 && newCol <= cols &&
-                    !visited[newRow - 1][newCol - 1]) {
-
-                int weight = rand.nextInt(100);
-                frontier.add(new int[]{newRow, newCol, row, col, weight});
-            }
+    public static RatedPuzzle generateRatedPuzzle(GenerationProfile profile, int attempts) {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is needed");
+        }
+        SplittableRandom rand = new SplittableRandom(profile.seed());
+        RatedPuzzle first = null;
+        for (int i = 0; i < attempts; i++) {
+            Puzzle puzzle = generateMaze(profile, DEFAULT_GENERATOR, rand);
+            RatedPuzzle rated = new RatedPuzzle(puzzle, Solver.of(puzzle).rate(2, RATING_NODE_LIMIT));
+            if (rated.rating().unique()) return rated;
+            if (first == null) first = rated;
         }
+        return first;
     }
 
     /**
-     * @param fromRow The row of the source node.
-     * @param fromCol The column of the source node.
-     * @param toRow   The row of the target node.
-     * @param toCol   The column of the target node.
-     * @return The NodeSide representing the direction.
-     * @brief Determines the side of a connection between two nodes.
+     * @param seed  Seed of the whole batch.
+     * @param count Number of puzzles in the batch.
+     * @return Random streams of the puzzles, in the order of the puzzles.
+     * @brief Splits the random streams of a batch from its seed in advance.
      */
-    private static NodeSide getSide(int fromRow, int fromCol, int toRow, int toCol) {
-        if (fromRow < toRow) return SOUTH;
-        if (fromRow > toRow) return NORTH;
-        if (fromCol < toCol) return EAST;
-        return WEST;
+    private static SplittableRandom[] splitStreams(long seed, int count) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            streams[i] = root.split();
+        }
+        return streams;
     }
 
     /**
-     * @param game        The Game instance.
-     * @param connections The map of node connections.
-     * @param powerPos    The position of the power node.
-     * @param difficulty  The difficulty level.
-     * @brief Creates nodes based on the connections map.
+     * @param profile   The parameters of the generation.
+     * @param generator The maze generation strategy.
+     * @param rand      Random number generator.
+     * @return A descriptor of the generated puzzle.
+     * @throws CancellationException If the generating thread was interrupted.
+     * @brief Generates a maze and places the nodes of the puzzle on it.
+     * All steps work on primitive arrays in linear time (Prim's strategy adds a logarithmic factor).
      */
-    private static void createNodes(
-            Game game,
-            Map<NodePosition, Set<NodeSide>> connections,
-            NodePosition powerPos,
-            String difficulty) {
-
-        Random rand = new Random();
-
-        Set<NodeSide> powerSides = connections.get(powerPos);
-        game.createPowerNode(powerPos, powerSides.toArray(new NodeSide[0]));
-
-        int bulbCount = switch (difficulty) {
-            case "Easy" -> 4;
-            case "Medium" -> 8;
-            case "Hard" -> 12;
-            default -> 6;
-        };
-
-        List<NodePosition> leafNodes = new ArrayList<>();
+    private static Puzzle generateMaze(GenerationProfile profile, MazeGenerator generator, RandomGenerator rand) {
+        int rows = profile.rows();
+        int cols = profile.cols();
+        int start = rand.nextInt(rows) * cols + rand.nextInt(cols);
+
+        byte[] sides = generator.generate(rows, cols, start, profile.edgeLimit(), rand);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Puzzle generation cancelled");
+        }
+        byte[] types = new byte[rows * cols];
+        Arrays.fill(types, (byte) EMPTY.ordinal());
+        createNodes(types, sides, start, profile.bulbCount(), rand);
+        return new Puzzle(rows, cols, types, sides, randomizeRotations(types, rand));
+    }
 
-        for (NodePosition pos : connections.keySet()) {
-            if (!pos.equals(powerPos)) {
-                Set<NodeSide> sides = connections.get(pos);
-                if (sides.size() == 1) {
-                    leafNodes.add(pos);
-                } else if (sides.size() >= 2) {
-                    game.createLinkNode(pos, sides.toArray(new NodeSide[0]));
+    /**
+     * @param types     Node types of the puzzle to fill in.
+     * @param sides     Connector masks of the maze.
+     * @param power     The cell of the power node.
+     * @param bulbCount The requested number of bulbs.
+     * @param rand      Random number generator.
+     * @brief Creates nodes based on the connector masks.
+     * Cells with several connections become links, a random choice of the dead ends becomes bulbs,
+     * the remaining dead ends stay empty.
+     */
+    private static void createNodes(byte[] types, byte[] sides, int power, int bulbCount, RandomGenerator rand) {
+        types[power] = (byte) POWER.ordinal();
+
+        int[] leafNodes = new int[types.length];
+        int leafCount = 0;
+
+        for (int cell = 0; cell < types.length; cell++) {
+            if (cell != power) {
+                int connections = Integer.bitCount(sides[cell]);
+                if (connections == 1) {
+                    leafNodes[leafCount++] = cell;
+                } else if (connections >= 2) {
+                    types[cell] = (byte) LINK.ordinal();
                 }
             }
         }
 
-        Collections.shuffle(leafNodes);
-        int bulbsCreated = 0;
-
-        for (NodePosition pos : leafNodes) {
-            if (bulbsCreated >= bulbCount) break;
-
-            NodeSide side = connections.get(pos).iterator().next();
-            game.createBulbNode(pos, side);
-            bulbsCreated++;
-        }
-
-        if (bulbsCreated < bulbCount) {
-            for (NodePosition pos : connections.keySet()) {
-                if (bulbsCreated >= bulbCount) break;
-
-                if (!pos.equals(powerPos) && game.node(pos).is(EMPTY)) {
-                    Set<NodeSide> sides = connections.get(pos);
-                    if (!sides.isEmpty()) {
-                        NodeSide side = sides.iterator().next();
-                        game.createBulbNode(pos, side);
-                        bulbsCreated++;
-                    }
-                }
-            }
+        // Partial Fisher-Yates shuffle, only the chosen dead ends are needed
+        int bulbs = Math.min(bulbCount, leafCount);
+        for (int i = 0; i < bulbs; i++) {
+            int j = i + rand.nextInt(leafCount - i);
+            int leaf = leafNodes[j];
+            leafNodes[j] = leafNodes[i];
+            types[leaf] = (byte) BULB.ordinal();
         }
     }
 
     /**
-     * @param game The Game instance.
+     * @param types Node types of the puzzle.
+     * @param rand  Random number generator.
+     * @return Number of clockwise rotations of every tile.
      * @brief Randomizes the rotations of nodes to increase difficulty.
      */
-    private static void randomizeRotations(Game game) {
-        Random rand = new Random();
-        for (int row = 1; row <= game.rows(); row++) {
-            for (int col = 1; col <= game.cols(); col++) {
-                NodePosition pos = new NodePosition(row, col);
-                if (game.node(pos) != null && !game.node(pos).is(EMPTY)) {
-                    int rotations = rand.nextInt(4);
-                    for (int i = 0; i < rotations; i++) game.node(pos).turn(false);
-                }
+    private static byte[] randomizeRotations(byte[] types, RandomGenerator rand) {
+        byte[] turns = new byte[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != EMPTY.ordinal()) {
+                turns[i] = (byte) rand.nextInt(4);
             }
         }
+        return turns;
     }
 
     /**
@@ -259,6 +282,6 @@ public class GameRepo {
      * @brief Retrieves the available puzzle difficulties.
      */
     public static Set<String> getAvailablePuzzles() {
-        return BOARD_SIZES.keySet();
+        return DIFFICULTIES;
     }
 }
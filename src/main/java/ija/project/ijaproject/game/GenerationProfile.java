@@ -0,0 +1,93 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Parameters of the puzzle generation. Describes the    #
+# board size, the density of bulbs, the number of maze  #
+# connections and the seed, and provides the profiles   #
+# of the predefined difficulty levels.                  #
+#########################################################
+*/
+
+/**
+ * @file GenerationProfile.java
+ * @brief Parameters of the puzzle generation.
+ */
+
+package ija.project.ijaproject.game;
+
+/**
+ * @param rows        Number of rows on the board
+ * @param cols        Number of columns on the board
+ * @param bulbDensity Requested number of bulbs as a fraction of all tiles
+ * @param edgeLimit   Maximal number of connections of the maze
+ * @param seed        Seed of the random number generator
+ * @class GenerationProfile
+ * @brief Parameters of the puzzle generation.
+ * The number of bulbs is the bulb density multiplied by the number of tiles, rounded,
+ * but at least one; it is further limited by the number of dead ends of the maze.
+ */
+public record GenerationProfile(int rows, int cols, double bulbDensity, int edgeLimit, long seed) {
+    /**
+     * @brief Maximal number of tiles of a board, the maze generators address tiles by 30-bit indexes
+     */
+    public static final int MAX_TILES = 1 << 30;
+
+    /**
+     * @throws IllegalArgumentException If a parameter is out of its range
+     * @brief Validates the parameters.
+     */
+    public GenerationProfile {
+        if (rows < 1 || cols < 1 || (long) rows * cols > MAX_TILES) {
+            throw new IllegalArgumentException("Invalid board size " + rows + "x" + cols);
+        }
+        if (!(bulbDensity >= 0 && bulbDensity <= 1)) {
+            throw new IllegalArgumentException("Bulb density must be between 0 and 1");
+        }
+        if (edgeLimit < 0) {
+            throw new IllegalArgumentException("Edge limit must not be negative");
+        }
+    }
+
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard"), other values select a default profile.
+     * @param seed       Seed of the random number generator.
+     * @return The profile of the difficulty level.
+     * @brief Returns the profile of a predefined difficulty level.
+     */
+    public static GenerationProfile of(String difficulty, long seed) {
+        return switch (difficulty) {
+            case "Easy" -> new GenerationProfile(4, 4, 4 / 16.0, 16 / 2, seed);
+            case "Medium" -> new GenerationProfile(8, 8, 8 / 64.0, 64 * 3 / 4, seed);
+            case "Hard" -> new GenerationProfile(16, 16, 12 / 256.0, 256, seed);
+            default -> new GenerationProfile(8, 8, 6 / 64.0, 64 / 2, seed);
+        };
+    }
+
+    /**
+     * @return Number of tiles on the board
+     * @brief Returns the number of tiles on the board.
+     */
+    public int tiles() {
+        return rows * cols;
+    }
+
+    /**
+     * @return Requested number of bulbs
+     * @brief Computes the requested number of bulbs from the bulb density.
+     */
+    public int bulbCount() {
+        return (int) Math.max(1, Math.round(bulbDensity * tiles()));
+    }
+
+    /**
+     * @param seed The new seed.
+     * @return A copy of the profile with the given seed.
+     * @brief Replaces the seed of the profile.
+     */
+    public GenerationProfile withSeed(long seed) {
+        return new GenerationProfile(rows, cols, bulbDensity, edgeLimit, seed);
+    }
+}
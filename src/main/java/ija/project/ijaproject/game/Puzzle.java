@@ -0,0 +1,97 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Lightweight description of a generated puzzle. Holds  #
+# node types, solved connector masks and generation     #
+# rotations of all tiles in primitive arrays, so        #
+# puzzles can be generated and stored without creating  #
+# observed Game instances.                              #
+#########################################################
+*/
+
+/**
+ * @file Puzzle.java
+ * @brief Descriptor of a generated puzzle that can be turned into a game.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.util.Arrays;
+
+/**
+ * @param rows  Number of rows on the game board
+ * @param cols  Number of columns on the game board
+ * @param types Ordinal of the NodeType of every tile, in row-major order
+ * @param sides Connector mask of every tile in the solved state, see NodeSide#mask()
+ * @param turns Number of clockwise rotations applied to every tile after its creation
+ * @class Puzzle
+ * @brief Descriptor of a generated puzzle.
+ * Two descriptors are equal if all their arrays have equal contents.
+ */
+public record Puzzle(int rows, int cols, byte[] types, byte[] sides, byte[] turns) {
+    /**
+     * @brief Node types by their ordinal, cached to avoid copying the values array
+     */
+    private static final NodeType[] TYPES = NodeType.values();
+
+    /**
+     * @param index Row-major tile index
+     * @return Type of the node on the tile
+     * @brief Returns the type of the node on a tile.
+     */
+    public NodeType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * @return New game with the puzzle placed on its board and initialized power propagation
+     * @throws IllegalStateException If the puzzle has no power source or no bulbs
+     * @brief Creates a playable game from the puzzle.
+     * The nodes are placed in bulk in linear time and the game log holds a single
+     * GameEvent.Generated entry, which is saved as the created nodes, the generation rotations
+     * and the end of the generation.
+     */
+    public Game toGame() {
+        Game game = new Game(this);
+        game.init();
+        return game;
+    }
+
+    /**
+     * @param o Object to compare with
+     * @return True if the object is a puzzle with the same size and array contents
+     * @brief Compares puzzles by their contents.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Puzzle other && rows == other.rows && cols == other.cols
+                && Arrays.equals(types, other.types) && Arrays.equals(sides, other.sides)
+                && Arrays.equals(turns, other.turns);
+    }
+
+    /**
+     * @return Hash code computed from the size and array contents
+     * @brief Computes the hash code of the puzzle.
+     */
+    @Override
+    public int hashCode() {
+        int result = 31 * rows + cols;
+        result = 31 * result + Arrays.hashCode(types);
+        result = 31 * result + Arrays.hashCode(sides);
+        return 31 * result + Arrays.hashCode(turns);
+    }
+
+    /**
+     * @return String with the size of the puzzle
+     * @brief Converts the puzzle to a short string representation.
+     */
+    @Override
+    public String toString() {
+        return "Puzzle[" + rows + "@" + cols + "]";
+    }
+}
@@ -0,0 +1,224 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Pool of pre-generated puzzles. Keeps a few puzzles of #
+# every requested profile ready, refills them on a      #
+# bounded background executor and evicts the puzzles    #
+# of the least recently requested profiles.             #
+#########################################################
+*/
+
+/**
+ * @file PuzzlePool.java
+ * @brief Background prefetching of generated puzzles.
+ */
+
+package ija.project.ijaproject.game;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @class PuzzlePool
+ * @brief Keeps pre-generated puzzles ready, so a new game can be started without waiting.
+ * Puzzles are pooled per generation profile, the seed of a requested profile is ignored and every
+ * pooled puzzle gets its own seed. Taking a puzzle schedules a refill of its profile on a fixed
+ * number of daemon threads; if no puzzle is ready, it is generated on the calling thread. Every
+ * puzzle is verified by the solver when it is generated: up to UNIQUE_ATTEMPTS puzzles are
+ * generated until one has a unique solution, see GameRepo.generateRatedPuzzle().
+ * When the pool holds more puzzles than its total capacity, puzzles of the least recently
+ * requested profiles are evicted first.
+ */
+public class PuzzlePool {
+    /**
+     * @class Slot
+     * @brief Ready puzzles and the number of puzzles being generated for one profile.
+     */
+    private static final class Slot {
+        private final ArrayDeque<Puzzle> ready = new ArrayDeque<>(); ///< Generated puzzles, oldest first.
+        private int pending = 0;                                     ///< Puzzles being generated.
+    }
+
+    /**
+     * @brief Most puzzles generated for one pooled puzzle while looking for a unique solution
+     */
+    static final int UNIQUE_ATTEMPTS = 8;
+    /**
+     * @brief Number of puzzles kept ready for every profile
+     */
+    private final int perProfile;
+    /**
+     * @brief Maximal number of ready puzzles of all profiles together
+     */
+    private final int capacity;
+    /**
+     * @brief Slots of all requested profiles in the order of their last request
+     */
+    private final Map<GenerationProfile, Slot> slots = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * @brief Number of ready puzzles of all profiles together
+     */
+    private int size = 0;
+    /**
+     * @brief Source of the seeds of pooled puzzles
+     */
+    private final SplittableRandom seeds = new SplittableRandom();
+    /**
+     * @brief Executor generating the puzzles in the background
+     */
+    private final ExecutorService executor;
+
+    /**
+     * @param perProfile Number of puzzles kept ready for every profile.
+     * @param capacity   Maximal number of ready puzzles of all profiles together.
+     * @param threads    Number of background generator threads.
+     * @throws IllegalArgumentException If a parameter is not positive.
+     * @brief Creates an empty pool.
+     */
+    public PuzzlePool(int perProfile, int capacity, int threads) {
+        if (perProfile < 1 || capacity < 1 || threads < 1) {
+            throw new IllegalArgumentException("Pool parameters must be positive");
+        }
+        this.perProfile = perProfile;
+        this.capacity = capacity;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "puzzle-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
+     * @brief Starts generating puzzles of a difficulty level in the background.
+     */
+    public void prefetch(String difficulty) {
+        prefetch(GenerationProfile.of(difficulty, 0));
+    }
+
+    /**
+     * @param profile The parameters of the generation, the seed is ignored.
+     * @brief Starts generating puzzles of a profile in the background.
+     */
+    public synchronized void prefetch(GenerationProfile profile) {
+        refill(profile.withSeed(0));
+    }
+
+    /**
+     * @param difficulty The difficulty level ("Easy", "Medium", "Hard").
+     * @return A new puzzle of the difficulty level.
+     * @brief Takes a puzzle of a difficulty level from the pool.
+     */
+    public Puzzle take(String difficulty) {
+        return take(GenerationProfile.of(difficulty, 0));
+    }
+
+    /**
+     * @param profile The parameters of the generation, the seed is ignored.
+     * @return A new puzzle of the profile.
+     * @brief Takes a puzzle from the pool, generating it on the calling thread if none is ready.
+     */
+    public Puzzle take(GenerationProfile profile) {
+        GenerationProfile key = profile.withSeed(0);
+        long seed;
+        synchronized (this) {
+            Puzzle puzzle = slot(key).ready.pollFirst();
+            if (puzzle != null) size--;
+            refill(key);
+            if (puzzle != null) return puzzle;
+            seed = seeds.nextLong();
+        }
+        return GameRepo.generateRatedPuzzle(key.withSeed(seed), UNIQUE_ATTEMPTS).puzzle();
+    }
+
+    /**
+     * @return Number of ready puzzles of all profiles together.
+     * @brief Returns the number of ready puzzles.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @brief Stops the background generation, puzzles being generated are discarded.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param key Profile with a zero seed.
+     * @return The slot of the profile, marked as the most recently requested one.
+     * @brief Finds or creates the slot of a profile.
+     */
+    private Slot slot(GenerationProfile key) {
+        return slots.computeIfAbsent(key, k -> new Slot());
+    }
+
+    /**
+     * @param key Profile with a zero seed.
+     * @brief Schedules generation of the puzzles missing in the slot of a profile.
+     */
+    private void refill(GenerationProfile key) {
+        if (executor.isShutdown()) return;
+        Slot slot = slot(key);
+        while (slot.ready.size() + slot.pending < perProfile) {
+            long seed = seeds.nextLong();
+            slot.pending++;
+            executor.execute(() -> generate(key, slot, seed));
+        }
+    }
+
+    /**
+     * @param key  Profile with a zero seed.
+     * @param slot Slot of the profile, never evicted while it has pending puzzles.
+     * @param seed Seed of the generated puzzle.
+     * @brief Generates a puzzle in the background and adds it to the pool.
+     */
+    private void generate(GenerationProfile key, Slot slot, long seed) {
+        Puzzle puzzle = null;
+        try {
+            puzzle = GameRepo.generateRatedPuzzle(key.withSeed(seed), UNIQUE_ATTEMPTS).puzzle();
+        } catch (CancellationException e) {
+            // The pool was shut down
+        } catch (RuntimeException e) {
+            System.err.println("Error generating puzzle: " + e.getMessage());
+        }
+        synchronized (this) {
+            slot.pending--;
+            if (puzzle != null) {
+                slot.ready.addLast(puzzle);
+                size++;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * @brief Removes puzzles of the least recently requested profiles while the pool is over its capacity.
+     * Slots left without ready and pending puzzles are removed as well.
+     */
+    private void evict() {
+        Iterator<Slot> iterator = slots.values().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            Slot slot = iterator.next();
+            while (size > capacity && !slot.ready.isEmpty()) {
+                slot.ready.pollFirst();
+                size--;
+            }
+            if (slot.ready.isEmpty() && slot.pending == 0) iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Generated puzzle together with its verification by    #
+# the solver, produced by rated generation batches.     #
+#########################################################
+*/
+
+/**
+ * @file RatedPuzzle.java
+ * @brief Generated puzzle with its number of solutions and difficulty.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.solver.PuzzleRating;
+
+/**
+ * @param puzzle The generated puzzle
+ * @param rating Number of solutions and difficulty of the puzzle
+ * @class RatedPuzzle
+ * @brief Generated puzzle verified by the solver, see GameRepo.generateRatedBatch().
+ */
+public record RatedPuzzle(Puzzle puzzle, PuzzleRating rating) {
+}
@@ -0,0 +1,207 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Seekable replay of a game log. Keeps snapshots of the #
+# board every few moves, so the replay jumps to any     #
+# move with one propagation of the changed nodes.       #
+#########################################################
+*/
+
+/**
+ * @file ReplayEngine.java
+ * @brief Random-access replay of the moves of a game log.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.GameNode;
+
+import java.util.Objects;
+
+/**
+ * @class ReplayEngine
+ * @brief Moves a game to any move of its log.
+ * The moves of the replay are the rotations logged after the last other action of the log, see
+ * GameLogger.replayStart(); move 0 is the board before the first of them. When the engine is built,
+ * it walks the log once and stores a checkpoint every interval moves: the connector masks of all
+ * tiles packed two per byte and their player rotation counts. seek() walks the rotations directly
+ * when the target is close to the current move, otherwise it starts from the nearest checkpoint
+ * before the target and applies fewer than interval moves. Either way only the nodes that differ
+ * are changed, in a single batch of the game, so the energy is propagated once.
+ *
+ * The engine belongs to the log it was built from; once a new action is logged it has to be
+ * built again, see isCurrent().
+ */
+public class ReplayEngine {
+    public static final int DEFAULT_INTERVAL = 256;   ///< Default number of moves between checkpoints.
+    static final long CHECKPOINT_BUDGET = 64L << 20;  ///< Most bytes spent on checkpoints, the interval grows above it.
+
+    private final Game game;           ///< The replayed game.
+    private final GameLogger logger;   ///< Log of the game.
+    private final int revision;        ///< Revision of the log the engine was built from.
+    private final int start;           ///< Index of the log action before the first move.
+    private final int[] moves;         ///< Rotations of the moves, see GameLogger.rotation().
+    private final int interval;        ///< Number of moves between checkpoints.
+    private final byte[][] sides;      ///< Connector masks of all tiles at every checkpoint, two tiles per byte.
+    private final short[][] turns;     ///< Player rotations of all tiles at every checkpoint.
+    private final int[] scratchSides;  ///< Connector masks of the board being restored.
+    private final short[] scratchTurns; ///< Player rotations of the board being restored.
+
+    /**
+     * @param game Game to replay
+     * @throws IllegalStateException If the log holds no board or the replay is before its moves
+     * @brief Builds the replay of a game with checkpoints every DEFAULT_INTERVAL moves.
+     */
+    public ReplayEngine(Game game) {
+        this(game, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param game     Game to replay
+     * @param interval Number of moves between checkpoints, raised if the checkpoints would not fit
+     *                 into CHECKPOINT_BUDGET
+     * @throws IllegalArgumentException If the interval is not positive
+     * @throws IllegalStateException    If the log holds no board or the replay is before its moves
+     * @brief Builds the replay of a game from its log and its current board.
+     */
+    public ReplayEngine(Game game, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.game = game;
+        this.logger = game.logger();
+        this.revision = this.logger.revision();
+        this.start = this.logger.replayStart();
+        int position = this.logger.position();
+        if (this.start < 0 || position < this.start) {
+            throw new IllegalStateException("The replay is not within the moves of the log");
+        }
+        this.moves = new int[this.logger.size() - 1 - this.start];
+        for (int i = 0; i < this.moves.length; i++) {
+            this.moves[i] = this.logger.rotation(this.start + 1 + i);
+        }
+
+        int n = game.rows() * game.cols();
+        long checkpointBytes = (n + 1) / 2 + 2L * n;
+        long fitting = Math.max(1, CHECKPOINT_BUDGET / checkpointBytes - 1);
+        this.interval = (int) Math.max(interval, (this.moves.length + fitting - 1) / fitting);
+        this.scratchSides = new int[n];
+        this.scratchTurns = new short[n];
+        for (int i = 0; i < n; i++) {
+            this.scratchSides[i] = game.node(i).sides();
+            this.scratchTurns[i] = (short) game.node(i).turnCount();
+        }
+        // Go back from the current board to the board before the first move
+        for (int i = position - this.start - 1; i >= 0; i--) this.undo(this.moves[i]);
+
+        int count = this.moves.length / this.interval + 1;
+        this.sides = new byte[count][];
+        this.turns = new short[count][];
+        for (int k = 0; k < count; k++) {
+            this.sides[k] = new byte[(n + 1) / 2];
+            for (int i = 0; i < n; i++) this.sides[k][i >> 1] |= (byte) (this.scratchSides[i] << ((i & 1) << 2));
+            this.turns[k] = this.scratchTurns.clone();
+            int end = Math.min(this.moves.length, (k + 1) * this.interval);
+            for (int i = k * this.interval; i < end; i++) this.redo(this.moves[i]);
+        }
+    }
+
+    /**
+     * @return The replayed game
+     * @brief Returns the game the engine was built for.
+     */
+    public Game game() {
+        return this.game;
+    }
+
+    /**
+     * @return Number of moves of the replay
+     * @brief Returns the last move the replay can seek to.
+     */
+    public int moves() {
+        return this.moves.length;
+    }
+
+    /**
+     * @return The current move, 0 before the first move
+     * @brief Returns the move the game is at.
+     */
+    public int move() {
+        return this.logger.position() - this.start;
+    }
+
+    /**
+     * @return True if no action was logged since the engine was built
+     * @brief Checks if the engine still describes the log of the game.
+     */
+    public boolean isCurrent() {
+        return this.logger.revision() == this.revision;
+    }
+
+    /**
+     * @param move The move to go to, from 0 to moves()
+     * @throws IndexOutOfBoundsException If there is no such move
+     * @throws IllegalStateException     If the log changed since the engine was built
+     * @brief Moves the game and the replay position of its log to a move.
+     */
+    public void seek(int move) {
+        Objects.checkIndex(move, this.moves.length + 1);
+        if (!this.isCurrent()) {
+            throw new IllegalStateException("The log changed since the replay was built");
+        }
+        int current = this.move();
+        if (Math.abs(move - current) <= this.interval) {
+            this.game.batch(() -> {
+                for (int i = current; i < move; i++) {
+                    int tile = this.moves[i] >>> 1;
+                    GameNode node = this.game.node(tile);
+                    this.game.restore(tile, GameNode.rotate(node.sides()), node.turnCount() + (this.moves[i] & 1));
+                }
+                for (int i = current - 1; i >= move; i--) {
+                    int tile = this.moves[i] >>> 1;
+                    GameNode node = this.game.node(tile);
+                    this.game.restore(tile, GameNode.rotateBack(node.sides()), node.turnCount() - (this.moves[i] & 1));
+                }
+            });
+        } else {
+            int k = move / this.interval;
+            for (int i = 0; i < this.scratchSides.length; i++) {
+                this.scratchSides[i] = this.sides[k][i >> 1] >> ((i & 1) << 2) & 0x0F;
+            }
+            System.arraycopy(this.turns[k], 0, this.scratchTurns, 0, this.scratchTurns.length);
+            for (int i = k * this.interval; i < move; i++) this.redo(this.moves[i]);
+            this.game.batch(() -> {
+                for (int i = 0; i < this.scratchSides.length; i++) {
+                    GameNode node = this.game.node(i);
+                    if (node.sides() != this.scratchSides[i] || node.turnCount() != this.scratchTurns[i]) {
+                        this.game.restore(i, this.scratchSides[i], this.scratchTurns[i]);
+                    }
+                }
+            });
+        }
+        this.logger.seek(this.start + move);
+    }
+
+    /**
+     * @param rotation Rotation of a move
+     * @brief Performs a move on the board being restored.
+     */
+    private void redo(int rotation) {
+        int tile = rotation >>> 1;
+        this.scratchSides[tile] = GameNode.rotate(this.scratchSides[tile]);
+        this.scratchTurns[tile] += (short) (rotation & 1);
+    }
+
+    /**
+     * @param rotation Rotation of a move
+     * @brief Takes a move back on the board being restored.
+     */
+    private void undo(int rotation) {
+        int tile = rotation >>> 1;
+        this.scratchSides[tile] = GameNode.rotateBack(this.scratchSides[tile]);
+        this.scratchTurns[tile] -= (short) (rotation & 1);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Maze generator based on the recursive backtracker.    #
+# Walks to random unvisited neighbours and backtracks   #
+# on an explicit stack, so large boards cannot overflow #
+# the call stack.                                       #
+#########################################################
+*/
+
+/**
+ * @file BacktrackerMaze.java
+ * @brief Maze generation using a randomized depth-first search.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import ija.project.ijaproject.game.node.NodeSide;
+
+import java.util.random.RandomGenerator;
+
+import static ija.project.ijaproject.game.maze.Mazes.SIDES;
+
+/**
+ * @class BacktrackerMaze
+ * @brief Generates mazes using a randomized depth-first search in linear time.
+ * The search moves from the cell on top of the stack to a random unvisited neighbour and
+ * backtracks when there is none, which produces long winding corridors. The generation stops
+ * once the tree has edgeLimit connections.
+ */
+public class BacktrackerMaze implements MazeGenerator {
+    /**
+     * @param rows      Number of rows on the board.
+     * @param cols      Number of columns on the board.
+     * @param start     Row-major index of the cell the tree grows from.
+     * @param edgeLimit Maximal number of connections in the tree.
+     * @param rand      Random number generator.
+     * @return Connector masks of all cells.
+     * @brief Generates a maze using the recursive backtracker.
+     */
+    @Override
+    public byte[] generate(int rows, int cols, int start, int edgeLimit, RandomGenerator rand) {
+        int n = rows * cols;
+        byte[] sides = new byte[n];
+        boolean[] visited = new boolean[n];
+        int[] stack = new int[n];
+        NodeSide[] choices = new NodeSide[SIDES.length];
+
+        int top = 0;
+        int edgeCount = 0;
+        stack[top++] = start;
+        visited[start] = true;
+        while (top > 0 && edgeCount < edgeLimit) {
+            int cell = stack[top - 1];
+            int count = 0;
+            for (NodeSide side : SIDES) {
+                int next = Mazes.neighbour(cell, side, rows, cols);
+                if (next >= 0 && !visited[next]) choices[count++] = side;
+            }
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            NodeSide side = choices[rand.nextInt(count)];
+            int next = Mazes.neighbour(cell, side, rows, cols);
+            visited[next] = true;
+            Mazes.connect(sides, cell, side, cols);
+            edgeCount++;
+            Mazes.checkCancelled(edgeCount);
+            stack[top++] = next;
+        }
+        return sides;
+    }
+}
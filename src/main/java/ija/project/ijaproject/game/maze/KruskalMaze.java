@@ -0,0 +1,103 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Maze generator based on randomized Kruskal's          #
+# algorithm. Shuffles all connections of the board and  #
+# keeps those joining two trees, tracked by union-find. #
+#########################################################
+*/
+
+/**
+ * @file KruskalMaze.java
+ * @brief Maze generation using randomized Kruskal's algorithm.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import java.util.random.RandomGenerator;
+
+import static ija.project.ijaproject.game.node.NodeSide.EAST;
+import static ija.project.ijaproject.game.node.NodeSide.SOUTH;
+
+/**
+ * @class KruskalMaze
+ * @brief Generates mazes using randomized Kruskal's algorithm in near-linear time.
+ * Every connection of the board is encoded as an int (cell * 2 for the east side, cell * 2 + 1
+ * for the south side), the connections are shuffled and added whenever they join two different
+ * trees of a union-find forest with path halving and union by size. The spanning tree is then
+ * pruned to edgeLimit connections around the start cell.
+ */
+public class KruskalMaze implements MazeGenerator {
+    /**
+     * @param rows      Number of rows on the board.
+     * @param cols      Number of columns on the board.
+     * @param start     Row-major index of the cell the tree grows from.
+     * @param edgeLimit Maximal number of connections in the tree.
+     * @param rand      Random number generator.
+     * @return Connector masks of all cells.
+     * @brief Generates a maze using Kruskal's algorithm.
+     */
+    @Override
+    public byte[] generate(int rows, int cols, int start, int edgeLimit, RandomGenerator rand) {
+        int n = rows * cols;
+        byte[] sides = new byte[n];
+
+        int[] edges = new int[2 * n];
+        int edgeCount = 0;
+        for (int cell = 0; cell < n; cell++) {
+            if (cell % cols < cols - 1) edges[edgeCount++] = cell * 2;
+            if (cell < (rows - 1) * cols) edges[edgeCount++] = cell * 2 + 1;
+        }
+
+        int[] parent = new int[n];
+        int[] size = new int[n];
+        for (int cell = 0; cell < n; cell++) {
+            parent[cell] = cell;
+            size[cell] = 1;
+        }
+
+        // Lazy Fisher-Yates shuffle, stops once the spanning tree is complete
+        int treeEdges = 0;
+        for (int i = 0; i < edgeCount && treeEdges < n - 1; i++) {
+            Mazes.checkCancelled(i);
+            int j = i + rand.nextInt(edgeCount - i);
+            int edge = edges[j];
+            edges[j] = edges[i];
+
+            int cell = edge >>> 1;
+            boolean south = (edge & 1) != 0;
+            int a = find(parent, cell);
+            int b = find(parent, south ? cell + cols : cell + 1);
+            if (a == b) continue;
+            if (size[a] < size[b]) {
+                int temp = a;
+                a = b;
+                b = temp;
+            }
+            parent[b] = a;
+            size[a] += size[b];
+            Mazes.connect(sides, cell, south ? SOUTH : EAST, cols);
+            treeEdges++;
+        }
+
+        Mazes.prune(sides, rows, cols, start, edgeLimit);
+        return sides;
+    }
+
+    /**
+     * @param parent The union-find forest.
+     * @param cell   The cell to look up.
+     * @return The root of the tree containing the cell.
+     * @brief Finds the root of a cell, halving the path on the way.
+     */
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+}
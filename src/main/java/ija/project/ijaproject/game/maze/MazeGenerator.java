@@ -0,0 +1,43 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Strategy interface of maze generators. A generator    #
+# connects the cells of a board into a random tree and  #
+# returns the connector mask of every cell.             #
+#########################################################
+*/
+
+/**
+ * @file MazeGenerator.java
+ * @brief Interface of the maze generation strategies used by GameRepo.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * @class MazeGenerator
+ * @brief Generates a random tree of connected cells on a board.
+ * The result is a connector mask of every cell in row-major order, see NodeSide#mask().
+ * Connections are always mutual, the tree contains the start cell and at most edgeLimit
+ * connections, and cells outside of the tree have no connections.
+ * Implementations keep no state between calls, so one instance may be shared by threads.
+ * Long generations stop with a CancellationException when the generating thread is interrupted.
+ */
+public interface MazeGenerator {
+    /**
+     * @param rows      Number of rows on the board.
+     * @param cols      Number of columns on the board.
+     * @param start     Row-major index of the cell the tree grows from.
+     * @param edgeLimit Maximal number of connections in the tree.
+     * @param rand      Random number generator, the only source of randomness of the generation.
+     * @return Connector masks of all cells.
+     * @throws java.util.concurrent.CancellationException If the generating thread was interrupted.
+     * @brief Generates a maze.
+     */
+    byte[] generate(int rows, int cols, int start, int edgeLimit, RandomGenerator rand);
+}
@@ -0,0 +1,126 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Helpers shared by the maze generators. Navigates the  #
+# cells of a board by row-major index, connects cells   #
+# and prunes a spanning tree to a limited number of     #
+# connections.                                          #
+#########################################################
+*/
+
+/**
+ * @file Mazes.java
+ * @brief Helpers shared by the maze generation strategies.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import ija.project.ijaproject.game.node.NodeSide;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * @class Mazes
+ * @brief Static helpers working on connector masks of maze cells.
+ */
+final class Mazes {
+    static final NodeSide[] SIDES = NodeSide.values(); ///< All node sides, cached to avoid copying the values array.
+    static final int CHECK_MASK = 0xFFFF;              ///< Generators check for cancellation once per 65536 steps.
+
+    /**
+     * @brief The class only holds static helpers.
+     */
+    private Mazes() {
+    }
+
+    /**
+     * @param step Number of steps done by the generator.
+     * @throws CancellationException If the generating thread was interrupted.
+     * @brief Stops the generation if it was cancelled, the interrupted state is checked once per CHECK_MASK + 1 steps.
+     */
+    static void checkCancelled(int step) {
+        if ((step & CHECK_MASK) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Maze generation cancelled");
+        }
+    }
+
+    /**
+     * @param cell The row-major index of the cell.
+     * @param side The direction of the neighbour.
+     * @param rows Total number of rows.
+     * @param cols Total number of columns.
+     * @return The row-major index of the neighbouring cell, or -1 if it lies outside the board.
+     * @brief Determines the cell next to a cell in a direction.
+     */
+    static int neighbour(int cell, NodeSide side, int rows, int cols) {
+        return switch (side) {
+            case NORTH -> cell >= cols ? cell - cols : -1;
+            case EAST -> cell % cols < cols - 1 ? cell + 1 : -1;
+            case SOUTH -> cell < (rows - 1) * cols ? cell + cols : -1;
+            case WEST -> cell % cols > 0 ? cell - 1 : -1;
+        };
+    }
+
+    /**
+     * @param sides Connector masks of the maze.
+     * @param cell  The row-major index of the cell.
+     * @param side  The side of the cell to connect.
+     * @param cols  Total number of columns.
+     * @brief Connects a cell with its neighbour in both directions, the caller checks the board bounds.
+     */
+    static void connect(byte[] sides, int cell, NodeSide side, int cols) {
+        int next = switch (side) {
+            case NORTH -> cell - cols;
+            case EAST -> cell + 1;
+            case SOUTH -> cell + cols;
+            case WEST -> cell - 1;
+        };
+        sides[cell] |= (byte) side.mask();
+        sides[next] |= (byte) side.opposite().mask();
+    }
+
+    /**
+     * @param sides     Connector masks of a tree, pruned in place.
+     * @param rows      Total number of rows.
+     * @param cols      Total number of columns.
+     * @param start     The cell the kept part of the tree grows from.
+     * @param edgeLimit Maximal number of kept connections.
+     * @brief Prunes a tree to the part closest to the start cell.
+     * The first edgeLimit + 1 cells reached by a breadth-first search from the start cell are kept,
+     * so the result stays a connected tree; connections of all other cells are removed.
+     */
+    static void prune(byte[] sides, int rows, int cols, int start, int edgeLimit) {
+        int n = sides.length;
+        if (edgeLimit >= n - 1) return;
+        boolean[] kept = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0, tail = 0;
+        kept[start] = true;
+        queue[tail++] = start;
+        while (head < tail && tail <= edgeLimit) {
+            int cell = queue[head++];
+            for (NodeSide side : SIDES) {
+                if ((sides[cell] & side.mask()) == 0) continue;
+                int next = neighbour(cell, side, rows, cols);
+                if (!kept[next] && tail <= edgeLimit) {
+                    kept[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        for (int cell = 0; cell < n; cell++) {
+            if (!kept[cell]) {
+                sides[cell] = 0;
+                continue;
+            }
+            for (NodeSide side : SIDES) {
+                if ((sides[cell] & side.mask()) != 0 && !kept[neighbour(cell, side, rows, cols)]) {
+                    sides[cell] &= (byte) ~side.mask();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Maze generator based on randomized Prim's algorithm.  #
+# Grows the tree from the start cell through the        #
+# lightest frontier connection, kept in a heap of       #
+# packed longs.                                         #
+#########################################################
+*/
+
+/**
+ * @file PrimMaze.java
+ * @brief Maze generation using randomized Prim's algorithm.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import ija.project.ijaproject.game.node.NodeSide;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+import static ija.project.ijaproject.game.maze.Mazes.SIDES;
+
+/**
+ * @class PrimMaze
+ * @brief Generates mazes using randomized Prim's algorithm in O(n log n) time.
+ * Frontier entries are packed into longs holding a random 32-bit weight in the high half and the
+ * target cell with the direction back to the tree in the low half, so the heap orders them by
+ * weight and the generation allocates only a few arrays regardless of the board size.
+ * The generation stops once the tree has edgeLimit connections.
+ */
+public class PrimMaze implements MazeGenerator {
+    /**
+     * @param rows      Number of rows on the board.
+     * @param cols      Number of columns on the board.
+     * @param start     Row-major index of the cell the tree grows from.
+     * @param edgeLimit Maximal number of connections in the tree.
+     * @param rand      Random number generator.
+     * @return Connector masks of all cells.
+     * @brief Generates a maze using Prim's algorithm.
+     */
+    @Override
+    public byte[] generate(int rows, int cols, int start, int edgeLimit, RandomGenerator rand) {
+        int n = rows * cols;
+        boolean[] visited = new boolean[n];
+        byte[] sides = new byte[n];
+        LongHeap frontier = new LongHeap();
+
+        visited[start] = true;
+        addNeighborsToFrontier(frontier, start, rows, cols, visited, rand);
+
+        int edgeCount = 0;
+
+        while (!frontier.isEmpty() && edgeCount < edgeLimit) {
+            long next = frontier.poll();
+            int cell = (int) next >>> 2;
+            NodeSide toTree = SIDES[(int) next & 0x03];
+
+            if (visited[cell]) continue;
+
+            visited[cell] = true;
+            edgeCount++;
+            Mazes.checkCancelled(edgeCount);
+            Mazes.connect(sides, cell, toTree, cols);
+
+            addNeighborsToFrontier(frontier, cell, rows, cols, visited, rand);
+        }
+        return sides;
+    }
+
+    /**
+     * @param frontier The heap of packed frontier entries.
+     * @param cell     The cell just added to the tree.
+     * @param rows     Total number of rows.
+     * @param cols     Total number of columns.
+     * @param visited  The cells already in the tree.
+     * @param rand     Random number generator.
+     * @brief Adds neighboring cells to the frontier for Prim's algorithm.
+     */
+    private static void addNeighborsToFrontier(
+            LongHeap frontier, int cell, int rows, int cols, boolean[] visited, RandomGenerator rand) {
+
+        for (NodeSide side : SIDES) {
+            int next = Mazes.neighbour(cell, side, rows, cols);
+            if (next >= 0 && !visited[next]) {
+                // Negative weights order correctly as well, the cell and direction below them are never negative
+                long weight = rand.nextInt();
+                frontier.add(weight << 32 | (long) next << 2 | side.opposite().ordinal());
+            }
+        }
+    }
+
+    /**
+     * @class LongHeap
+     * @brief Binary min-heap of primitive long values.
+     */
+    private static final class LongHeap {
+        private long[] heap = new long[64]; ///< Heap-ordered values.
+        private int size = 0;               ///< Number of values in the heap.
+
+        /**
+         * @return True if the heap holds no values.
+         * @brief Checks if the heap is empty.
+         */
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * @param value The value to add.
+         * @brief Adds a value to the heap.
+         */
+        void add(long value) {
+            if (this.size == this.heap.length) {
+                this.heap = Arrays.copyOf(this.heap, this.size * 2);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (this.heap[parent] <= value) break;
+                this.heap[i] = this.heap[parent];
+                i = parent;
+            }
+            this.heap[i] = value;
+        }
+
+        /**
+         * @return The smallest value.
+         * @brief Removes the smallest value from the heap.
+         */
+        long poll() {
+            long result = this.heap[0];
+            long last = this.heap[--this.size];
+            int i = 0;
+            int half = this.size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < this.size && this.heap[child + 1] < this.heap[child]) child++;
+                if (last <= this.heap[child]) break;
+                this.heap[i] = this.heap[child];
+                i = child;
+            }
+            this.heap[i] = last;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Maze generator based on Wilson's algorithm. Joins     #
+# cells to the tree by loop-erased random walks, which  #
+# yields a uniformly random spanning tree.              #
+#########################################################
+*/
+
+/**
+ * @file WilsonMaze.java
+ * @brief Maze generation using Wilson's loop-erased random walks.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import ija.project.ijaproject.game.node.NodeSide;
+
+import java.util.random.RandomGenerator;
+
+import static ija.project.ijaproject.game.maze.Mazes.SIDES;
+
+/**
+ * @class WilsonMaze
+ * @brief Generates uniformly random mazes using Wilson's algorithm.
+ * A random walk starts from every cell outside of the tree and remembers only the last direction
+ * taken from each cell, which erases loops implicitly. Once the walk hits the tree, its loop-erased
+ * path is followed from the starting cell and added to the tree. The walks take expected time
+ * proportional to the cover time of the board; the spanning tree is pruned to edgeLimit
+ * connections around the start cell.
+ */
+public class WilsonMaze implements MazeGenerator {
+    /**
+     * @param rows      Number of rows on the board.
+     * @param cols      Number of columns on the board.
+     * @param start     Row-major index of the cell the tree grows from.
+     * @param edgeLimit Maximal number of connections in the tree.
+     * @param rand      Random number generator.
+     * @return Connector masks of all cells.
+     * @brief Generates a maze using Wilson's algorithm.
+     */
+    @Override
+    public byte[] generate(int rows, int cols, int start, int edgeLimit, RandomGenerator rand) {
+        int n = rows * cols;
+        byte[] sides = new byte[n];
+        boolean[] inTree = new boolean[n];
+        byte[] exit = new byte[n];
+        NodeSide[] choices = new NodeSide[SIDES.length];
+
+        inTree[start] = true;
+        int steps = 0;
+        for (int origin = 0; origin < n; origin++) {
+            // Random walk until the tree is hit, remembering the last exit of every cell
+            int cell = origin;
+            while (!inTree[cell]) {
+                Mazes.checkCancelled(++steps);
+                int count = 0;
+                for (NodeSide side : SIDES) {
+                    if (Mazes.neighbour(cell, side, rows, cols) >= 0) choices[count++] = side;
+                }
+                NodeSide side = choices[rand.nextInt(count)];
+                exit[cell] = (byte) side.ordinal();
+                cell = Mazes.neighbour(cell, side, rows, cols);
+            }
+            // Add the loop-erased path to the tree
+            cell = origin;
+            while (!inTree[cell]) {
+                NodeSide side = SIDES[exit[cell]];
+                inTree[cell] = true;
+                Mazes.connect(sides, cell, side, cols);
+                cell = Mazes.neighbour(cell, side, rows, cols);
+            }
+        }
+
+        Mazes.prune(sides, rows, cols, start, edgeLimit);
+        return sides;
+    }
+}
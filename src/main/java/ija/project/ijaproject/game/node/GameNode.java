@@ -4,61 +4,109 @@
 #         Authors: Urbánek Aleš, Kováčik Martin         #
 #              Logins: xurbana00, xkovacm01             #
 #                     Description:                      #
-# Represents a single node in the game grid. Stores     #
-# position, type (e.g., BULB, POWER), and connection    #
-# sides. Supports rotation logic, power propagation,    #
-# and observer notifications. Allows checking           #
-# connectivity and tracking rotation state.             #
+# Represents a single node in the game grid. A view of  #
+# one tile of NodeGrid exposing its position, type      #
+# (e.g., BULB, POWER), and connection sides. Supports   #
+# rotation logic, power propagation, and observer       #
+# notifications. Allows checking connectivity and       #
+# tracking rotation state.                              #
 #########################################################
 */
 
 package ija.project.ijaproject.game.node;
 
-import ija.project.ijaproject.common.AbstractObservable;
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.common.Observable;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.EnumSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.StringJoiner;
 
-import static ija.project.ijaproject.game.node.NodeSide.*;
 import static ija.project.ijaproject.game.node.NodeType.EMPTY;
-import static ija.project.ijaproject.game.node.NodeType.POWER;
 
 /**
  * @brief Represents a single node in the game grid.
  *
  * A GameNode has a type, position, and sides that define its connections.
- * It can be rotated, powered, and observed for changes.
+ * It can be rotated, powered, and observed for changes. The node is a
+ * lightweight view of one tile of a NodeGrid, which holds all of its state,
+ * so any number of views of the same tile may exist at the same time.
  */
-public class GameNode extends AbstractObservable {
-    private final NodeType type;
-    /**< The type of the node. */
-    private final NodePosition position;
-    /**< The position of the node in the grid. */
-    private final Set<NodeSide> initialSides;
-    /**< The initial sides of the node. */
-    private Set<NodeSide> sides;
-    /**< The current sides of the node. */
-    private int turnCount = 0;
-    /**< The number of times the node has been rotated. */
-    private boolean isPowered = false; /**< Whether the node is powered. */
+public class GameNode implements Observable {
+    private static final byte[] ROTATE = new byte[16];
+    /**< Connector masks rotated clockwise, indexed by the original mask. */
+    private static final byte[] ROTATE_BACK = new byte[16];
+    /**< Connector masks rotated counterclockwise, indexed by the original mask. */
+    private static final byte[] TURNS_TO = new byte[16 * 16];
+    /**< Clockwise turns needed to cover the second mask by the first, indexed by (from << 4 | to). */
+    private final NodeGrid grid;
+    /**< The grid storing the state of the node. */
+    private final int index; /**< The row-major index of the node in the grid. */
+
+    static {
+        for (int sides = 0; sides < 16; sides++) {
+            int rotated = ((sides << 1) | (sides >> 3)) & 0x0F;
+            ROTATE[sides] = (byte) rotated;
+            ROTATE_BACK[rotated] = (byte) sides;
+        }
+        for (int from = 0; from < 16; from++) {
+            for (int to = 0; to < 16; to++) {
+                // Zero if no rotation covers the target mask
+                int temp = from;
+                for (int i = 0; i < 4; i++) {
+                    if ((temp & to) == to) {
+                        TURNS_TO[from << 4 | to] = (byte) i;
+                        break;
+                    }
+                    temp = ROTATE[temp];
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Constructs a view of the node stored on a tile of the grid.
+     *
+     * @param grid The grid storing the node.
+     * @param index The row-major index of the node in the grid.
+     */
+    public GameNode(NodeGrid grid, int index) {
+        this.grid = grid;
+        this.index = index;
+    }
+
+    /**
+     * @brief Gets the position of the node in the grid.
+     *
+     * @return The position of the node.
+     */
+    public NodePosition position() {
+        return this.grid.position(this.index);
+    }
+
+    /**
+     * @brief Gets the 1-based row of the node in the grid.
+     *
+     * @return The row of the node.
+     */
+    public int row() {
+        return this.index / this.grid.cols() + 1;
+    }
 
     /**
-     * @brief Constructs a GameNode with the given position, type, and sides.
+     * @brief Gets the 1-based column of the node in the grid.
      *
-     * @param position The position of the node in the grid.
-     * @param type The type of the node.
-     * @param sides The sides of the node that are connected.
+     * @return The column of the node.
      */
-    public GameNode(NodePosition position, NodeType type, NodeSide... sides) {
-        this.type = type;
-        this.position = position;
-        this.sides = EnumSet.noneOf(NodeSide.class);
-        Collections.addAll(this.sides, sides);
-        this.initialSides = EnumSet.copyOf(this.sides);
-        if (is(POWER)) this.isPowered = true;
+    public int col() {
+        return this.index % this.grid.cols() + 1;
+    }
+
+    /**
+     * @brief Gets the row-major index of the node in the grid.
+     *
+     * @return The tile index of the node.
+     */
+    public int index() {
+        return this.index;
     }
 
     /**
@@ -68,32 +116,36 @@ public class GameNode extends AbstractObservable {
      * @return True if the node connects to the side, false otherwise.
      */
     public boolean connects(NodeSide s) {
-        return this.sides.contains(s);
+        return (this.grid.sides(this.index) & s.mask()) != 0;
     }
 
     /**
-     * @brief Checks if the node connects to all specified sides.
+     * @brief Checks if the node connects to all sides of a connector mask.
      *
-     * @param s The sides to check.
-     * @return True if the node connects to all sides, false otherwise.
+     * @param sides The mask of sides to check, see NodeSide#mask().
+     * @return True if the node connects to all sides in the mask, false otherwise.
      */
-    public boolean connects(NodeSide... s) {
-        for (NodeSide side : s) {
-            if (!this.connects(side)) {
-                return false;
-            }
-        }
-        return true;
+    public boolean connects(int sides) {
+        return (this.grid.sides(this.index) & sides) == sides;
+    }
+
+    /**
+     * @brief Gets the mask of sides the node connects to.
+     *
+     * @return The connector mask of the node, see NodeSide#mask().
+     */
+    public int sides() {
+        return this.grid.sides(this.index);
     }
 
     /**
      * @brief Checks if the node is of a specific type.
      *
-     * @param types The types to check.
-     * @return True if the node matches any of the specified types, false otherwise.
+     * @param type The type to check.
+     * @return True if the node is of the type, false otherwise.
      */
-    public boolean is(NodeType... types) {
-        return Arrays.asList(types).contains(this.type);
+    public boolean is(NodeType type) {
+        return this.grid.type(this.index) == type;
     }
 
     /**
@@ -102,9 +154,8 @@ public class GameNode extends AbstractObservable {
      * @param powered True to power the node, false to unpower it.
      */
     public void setPower(boolean powered) {
-        if (this.isPowered != powered) {
-            this.isPowered = powered;
-            this.notifyObservers(null);
+        if (this.grid.setPowered(this.index, powered)) {
+            this.notifyObservers(NodeEvent.POWER_CHANGED);
         }
     }
 
@@ -114,7 +165,7 @@ public class GameNode extends AbstractObservable {
      * @return True if the node is powered, false otherwise.
      */
     public boolean isPowered() {
-        return this.isPowered;
+        return this.grid.isPowered(this.index);
     }
 
     /**
@@ -123,14 +174,11 @@ public class GameNode extends AbstractObservable {
      * @param player True if the rotation is performed by a player, false otherwise.
      */
     public void turn(boolean player) {
-        if (!this.is(EMPTY) && !this.connects(NORTH, EAST, SOUTH, WEST)) {
-            Set<NodeSide> newSides = EnumSet.noneOf(NodeSide.class);
-            for (NodeSide side : this.sides) {
-                newSides.add(side.next());
-            }
-            this.sides = newSides;
-            if (player) this.turnCount++;
-            this.notifyObservers("T " + this.position);
+        int sides = this.grid.sides(this.index);
+        if (!this.is(EMPTY) && sides != 0x0F) {
+            this.grid.setSides(this.index, ROTATE[sides]);
+            if (player) this.grid.addTurns(this.index, 1);
+            this.notifyObservers(NodeEvent.rotation(true, player));
         }
     }
 
@@ -141,13 +189,9 @@ public class GameNode extends AbstractObservable {
      */
     public void turnBack(boolean player) {
         if (!this.is(EMPTY)) {
-            Set<NodeSide> newSides = EnumSet.noneOf(NodeSide.class);
-            for (NodeSide side : this.sides) {
-                newSides.add(side.previous());
-            }
-            this.sides = newSides;
-            if (player) this.turnCount--;
-            this.notifyObservers(null);
+            this.grid.setSides(this.index, ROTATE_BACK[this.grid.sides(this.index)]);
+            if (player) this.grid.addTurns(this.index, -1);
+            this.notifyObservers(NodeEvent.rotation(false, player));
         }
     }
 
@@ -157,7 +201,7 @@ public class GameNode extends AbstractObservable {
      * @return The rotation count.
      */
     public int turnCount() {
-        return this.turnCount;
+        return this.grid.turnCount(this.index);
     }
 
     /**
@@ -166,22 +210,86 @@ public class GameNode extends AbstractObservable {
      * @return The number of rotations to return to the initial state.
      */
     public int turnsToInitialState() {
-        Set<NodeSide> tempSides = EnumSet.copyOf(this.sides);
-        for (int i = 0; i < 4; i++) {
-            if (tempSides.containsAll(initialSides)) {
-                return i;
-            }
+        return turnsTo(this.grid.sides(this.index), this.grid.initialSides(this.index));
+    }
 
-            // Rotate tempSides to check next position
-            Set<NodeSide> rotatedSides = EnumSet.noneOf(NodeSide.class);
-            for (NodeSide side : tempSides) {
-                rotatedSides.add(side.next());
-            }
-            tempSides = rotatedSides;
-        }
+    /**
+     * @brief Rotates a connector mask clockwise.
+     *
+     * @param sides The mask of connected sides.
+     * @return The mask with every side replaced by the next one.
+     */
+    public static int rotate(int sides) {
+        return ROTATE[sides & 0x0F];
+    }
+
+    /**
+     * @brief Rotates a connector mask counterclockwise.
+     *
+     * @param sides The mask of connected sides.
+     * @return The mask with every side replaced by the previous one.
+     */
+    public static int rotateBack(int sides) {
+        return ROTATE_BACK[sides & 0x0F];
+    }
+
+    /**
+     * @brief Calculates the number of clockwise rotations after which a mask covers another one.
+     *
+     * @param sides The mask of connected sides.
+     * @param target The mask of sides that has to be connected.
+     * @return The smallest number of rotations, or 0 if no rotation covers the target.
+     */
+    public static int turnsTo(int sides, int target) {
+        return TURNS_TO[(sides & 0x0F) << 4 | (target & 0x0F)];
+    }
 
-        // Should never reach here if sides are valid
-        return 0;
+    /**
+     * @param o The observer to be added.
+     * @brief Registers an observer to this node.
+     */
+    @Override
+    public void addObserver(Observer o) {
+        this.grid.addObserver(this.index, o);
+    }
+
+    /**
+     * @param o The observer to be removed.
+     * @brief Unregisters an observer from this node.
+     */
+    @Override
+    public void removeObserver(Observer o) {
+        this.grid.removeObserver(this.index, o);
+    }
+
+    /**
+     * @param event The event that occurred, or null for an unspecified change.
+     * @brief Notifies all observers of this node of an event.
+     */
+    @Override
+    public void notifyObservers(Event event) {
+        this.grid.notifyObservers(this.index, event);
+    }
+
+    /**
+     * @brief Checks if another object is a view of the same tile.
+     *
+     * @param o The object to compare with.
+     * @return True if both views refer to the same tile of the same grid.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GameNode other && other.grid == this.grid && other.index == this.index;
+    }
+
+    /**
+     * @brief Computes the hash code of the view.
+     *
+     * @return The hash code derived from the tile index.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(this.grid) + this.index;
     }
 
     /**
@@ -191,9 +299,10 @@ public class GameNode extends AbstractObservable {
      */
     @Override
     public String toString() {
-        final String connectorsStr = this.sides.stream()
-                .map(NodeSide::name)
-                .collect(Collectors.joining(","));
-        return String.format("{%s%s[%s]}", this.type, this.position, connectorsStr);
+        StringJoiner connectors = new StringJoiner(",");
+        for (NodeSide side : NodeSide.values()) {
+            if (this.connects(side)) connectors.add(side.name());
+        }
+        return String.format("{%s%s[%s]}", this.grid.type(this.index), this.position(), connectors);
     }
 }
@@ -0,0 +1,61 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Enum of the events a node sends to its observers. The #
+# node itself is passed as the observable, so the       #
+# events carry no position and are never allocated.     #
+#########################################################
+*/
+
+package ija.project.ijaproject.game.node;
+
+import ija.project.ijaproject.common.Event;
+
+/**
+ * @brief Enum of the events sent by a node to its observers.
+ *
+ * The position of the node is read from the GameNode passed together with
+ * the event, so every event is a shared constant. The game turns rotations
+ * into logged GameEvent actions.
+ */
+public enum NodeEvent implements Event {
+    TURNED,             /**< The node was rotated clockwise by the game. */
+    TURNED_BACK,        /**< The node was rotated counterclockwise by the game. */
+    PLAYER_TURNED,      /**< The node was rotated clockwise by a player. */
+    PLAYER_TURNED_BACK, /**< The node was rotated counterclockwise by a player. */
+    POWER_CHANGED,      /**< The power state of the node was set from outside of the game. */
+    CHANGED;            /**< The orientation or power state of the node changed during the last update. */
+
+    /**
+     * @brief Gets the event of a rotation.
+     *
+     * @param clockwise True for a clockwise rotation, false for a rotation back.
+     * @param player True if the rotation was performed by a player.
+     * @return The shared event of the rotation.
+     */
+    public static NodeEvent rotation(boolean clockwise, boolean player) {
+        if (clockwise) return player ? PLAYER_TURNED : TURNED;
+        return player ? PLAYER_TURNED_BACK : TURNED_BACK;
+    }
+
+    /**
+     * @brief Checks if the event is a clockwise rotation.
+     *
+     * @return True for TURNED and PLAYER_TURNED.
+     */
+    public boolean clockwise() {
+        return this == TURNED || this == PLAYER_TURNED;
+    }
+
+    /**
+     * @brief Checks if the event is a rotation performed by a player.
+     *
+     * @return True for PLAYER_TURNED and PLAYER_TURNED_BACK.
+     */
+    public boolean player() {
+        return this == PLAYER_TURNED || this == PLAYER_TURNED_BACK;
+    }
+}
@@ -0,0 +1,411 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Compact storage of all nodes of the game grid. Packs  #
+# node type, power state, current and initial sides and #
+# rotation count of every tile into primitive arrays    #
+# indexed by row-major tile index. GameNode instances   #
+# are lightweight views over this storage. Coalesces    #
+# tile notifications inside batches of changes.         #
+#########################################################
+*/
+
+package ija.project.ijaproject.game.node;
+
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.common.Observable;
+
+import java.util.Arrays;
+
+/**
+ * @brief Struct-of-arrays storage of the nodes of one game grid.
+ *
+ * Every tile is addressed by its row-major index and occupies four bytes:
+ * the node type with the power flag, the current and initial connector
+ * nibbles and the rotation count. Observers of all tiles are kept in one
+ * table of copy-on-write arrays indexed by tile, allocated with the first
+ * observer, so an unobserved board carries no per-tile objects.
+ */
+public final class NodeGrid {
+    private static final NodeType[] TYPES = {NodeType.EMPTY, NodeType.BULB, NodeType.LINK, NodeType.POWER};
+    /**< Node types by their stored code, EMPTY is zero so a new grid is empty. */
+    private static final int TYPE_MASK = 0x03;
+    /**< Bits of the state byte holding the type code. */
+    private static final int POWERED = 0x04;
+    /**< Bit of the state byte holding the power flag. */
+    private static final int BULB_CODE = 1;
+    /**< Type code of a bulb. */
+
+    private final int rows;
+    /**< Number of rows of the grid. */
+    private final int cols;
+    /**< Number of columns of the grid. */
+    private final byte[] state;
+    /**< Type code and power flag of every tile. */
+    private final byte[] connectors;
+    /**< Current sides in the low nibble and initial sides in the high nibble. */
+    private final short[] turns;
+    /**< Number of player rotations of every tile. */
+    private int bulbs = 0;
+    /**< Number of bulbs placed on the grid. */
+    private int poweredBulbs = 0;
+    /**< Number of bulbs that are currently powered. */
+    private final Observable.Observer owner;
+    /**< Observer notified about changes of every tile. */
+    private static final Observable.Observer[] NO_OBSERVERS = new Observable.Observer[0];
+    /**< Shared empty array of observers. */
+    private Observable.Observer[][] observers = null;
+    /**< Copy-on-write arrays of observers of individual tiles, null for unobserved tiles. */
+    private int batchDepth = 0;
+    /**< Number of nested batches in progress. */
+    private int[] changed = new int[16];
+    /**< Observed tiles changed during the current batch. */
+    private int changedCount = 0;
+    /**< Number of tiles in the changed array. */
+    private long[] changedMarks = null;
+    /**< Bit set of tiles in the changed array, allocated with the first batch. */
+
+    /**
+     * @brief Constructs an empty grid.
+     *
+     * @param rows Number of rows.
+     * @param cols Number of columns.
+     * @param owner Observer notified about changes of every tile, may be null.
+     */
+    public NodeGrid(int rows, int cols, Observable.Observer owner) {
+        this.rows = rows;
+        this.cols = cols;
+        this.state = new byte[rows * cols];
+        this.connectors = new byte[rows * cols];
+        this.turns = new short[rows * cols];
+        this.owner = owner;
+    }
+
+    /**
+     * @brief Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int rows() {
+        return this.rows;
+    }
+
+    /**
+     * @brief Gets the number of columns.
+     *
+     * @return The number of columns.
+     */
+    public int cols() {
+        return this.cols;
+    }
+
+    /**
+     * @brief Gets the number of tiles.
+     *
+     * @return The number of tiles.
+     */
+    public int size() {
+        return this.state.length;
+    }
+
+    /**
+     * @brief Converts a tile index to a position.
+     *
+     * @param index The tile index.
+     * @return The position of the tile.
+     */
+    public NodePosition position(int index) {
+        return new NodePosition(index / this.cols + 1, index % this.cols + 1);
+    }
+
+    /**
+     * @brief Creates a view of the node stored on a tile.
+     *
+     * @param index The tile index.
+     * @return A new view of the node.
+     */
+    public GameNode node(int index) {
+        return new GameNode(this, index);
+    }
+
+    /**
+     * @brief Places a node on a tile and resets its state.
+     *
+     * @param index The tile index.
+     * @param type The type of the node.
+     * @param sides The connector mask of the node, also stored as its initial sides.
+     */
+    public void place(int index, NodeType type, int sides) {
+        int code = switch (type) {
+            case EMPTY -> 0;
+            case BULB -> 1;
+            case LINK -> 2;
+            case POWER -> 3;
+        };
+        byte old = this.state[index];
+        if ((old & TYPE_MASK) == BULB_CODE) {
+            this.bulbs--;
+            if ((old & POWERED) != 0) this.poweredBulbs--;
+        }
+        if (code == BULB_CODE) this.bulbs++;
+        this.state[index] = (byte) (type == NodeType.POWER ? code | POWERED : code);
+        this.connectors[index] = (byte) ((sides & 0x0F) | (sides & 0x0F) << 4);
+        this.turns[index] = 0;
+    }
+
+    /**
+     * @brief Gets the type of the node on a tile.
+     *
+     * @param index The tile index.
+     * @return The node type.
+     */
+    public NodeType type(int index) {
+        return TYPES[this.state[index] & TYPE_MASK];
+    }
+
+    /**
+     * @brief Gets the current connector mask of a tile.
+     *
+     * @param index The tile index.
+     * @return The mask of connected sides, see NodeSide#mask().
+     */
+    public int sides(int index) {
+        return this.connectors[index] & 0x0F;
+    }
+
+    /**
+     * @brief Sets the current connector mask of a tile.
+     *
+     * @param index The tile index.
+     * @param sides The new mask of connected sides.
+     */
+    public void setSides(int index, int sides) {
+        this.connectors[index] = (byte) ((this.connectors[index] & 0xF0) | (sides & 0x0F));
+    }
+
+    /**
+     * @brief Gets the initial connector mask of a tile.
+     *
+     * @param index The tile index.
+     * @return The mask of initially connected sides.
+     */
+    public int initialSides(int index) {
+        return (this.connectors[index] >> 4) & 0x0F;
+    }
+
+    /**
+     * @brief Checks if a tile is powered.
+     *
+     * @param index The tile index.
+     * @return True if the tile is powered.
+     */
+    public boolean isPowered(int index) {
+        return (this.state[index] & POWERED) != 0;
+    }
+
+    /**
+     * @brief Sets the power state of a tile.
+     *
+     * @param index The tile index.
+     * @param powered The new power state.
+     * @return True if the power state changed.
+     */
+    public boolean setPowered(int index, boolean powered) {
+        byte old = this.state[index];
+        byte updated = (byte) (powered ? old | POWERED : old & ~POWERED);
+        if (old == updated) return false;
+        this.state[index] = updated;
+        if ((updated & TYPE_MASK) == BULB_CODE) {
+            this.poweredBulbs += powered ? 1 : -1;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Gets the number of bulbs placed on the grid.
+     *
+     * @return The number of bulbs.
+     */
+    public int bulbCount() {
+        return this.bulbs;
+    }
+
+    /**
+     * @brief Gets the number of bulbs that are currently powered.
+     *
+     * The count is maintained on every power change, so reading it takes constant time.
+     *
+     * @return The number of powered bulbs.
+     */
+    public int poweredBulbCount() {
+        return this.poweredBulbs;
+    }
+
+    /**
+     * @brief Gets the number of player rotations of a tile.
+     *
+     * @param index The tile index.
+     * @return The rotation count.
+     */
+    public int turnCount(int index) {
+        return this.turns[index];
+    }
+
+    /**
+     * @brief Adds to the number of player rotations of a tile.
+     *
+     * @param index The tile index.
+     * @param delta The number of rotations to add, negative for rotations back.
+     */
+    public void addTurns(int index, int delta) {
+        this.turns[index] += (short) delta;
+    }
+
+    /**
+     * @brief Registers an observer of a tile.
+     *
+     * @param index The tile index.
+     * @param o The observer to be added.
+     */
+    public void addObserver(int index, Observable.Observer o) {
+        if (this.observers == null) this.observers = new Observable.Observer[this.size()][];
+        Observable.Observer[] current = this.observers[index];
+        if (current == null) current = NO_OBSERVERS;
+        for (Observable.Observer registered : current) {
+            if (registered == o) return;
+        }
+        Observable.Observer[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = o;
+        this.observers[index] = updated;
+    }
+
+    /**
+     * @brief Unregisters an observer of a tile.
+     *
+     * @param index The tile index.
+     * @param o The observer to be removed.
+     */
+    public void removeObserver(int index, Observable.Observer o) {
+        Observable.Observer[] current = this.observers(index);
+        if (current == null) return;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == o) {
+                if (current.length == 1) {
+                    this.observers[index] = null;
+                } else {
+                    Observable.Observer[] updated = new Observable.Observer[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    this.observers[index] = updated;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @brief Gets the observers of a tile.
+     *
+     * The returned array is never modified, registrations replace it with a copy.
+     *
+     * @param index The tile index.
+     * @return The observers of the tile, or null if it has none.
+     */
+    private Observable.Observer[] observers(int index) {
+        return this.observers == null ? null : this.observers[index];
+    }
+
+    /**
+     * @brief Notifies the grid owner about an event on a tile.
+     *
+     * The owner handles the event inside a batch, so the observers of the tile
+     * and of all tiles changed by the owner in reaction are notified only once,
+     * after the owner is done.
+     *
+     * @param index The tile index.
+     * @param event The event that occurred on the tile.
+     */
+    public void notifyObservers(int index, Event event) {
+        this.beginBatch();
+        try {
+            this.markChanged(index);
+            if (this.owner != null) this.owner.update(this.node(index), event);
+        } finally {
+            this.endBatch();
+        }
+    }
+
+    /**
+     * @brief Records a change of a tile for its observers.
+     *
+     * Outside of a batch the observers are notified immediately, inside a batch
+     * the tile is remembered and its observers are notified when the batch ends.
+     *
+     * @param index The tile index.
+     */
+    public void markChanged(int index) {
+        Observable.Observer[] tileObservers = this.observers(index);
+        if (tileObservers == null) return;
+        if (this.batchDepth == 0) {
+            this.notifyTile(index, tileObservers);
+            return;
+        }
+        if (this.changedMarks == null) this.changedMarks = new long[(this.size() + 63) >> 6];
+        if ((this.changedMarks[index >> 6] & (1L << index)) != 0) return;
+        this.changedMarks[index >> 6] |= 1L << index;
+        if (this.changedCount == this.changed.length) {
+            this.changed = Arrays.copyOf(this.changed, this.changedCount * 2);
+        }
+        this.changed[this.changedCount++] = index;
+    }
+
+    /**
+     * @brief Starts a batch of changes, batches may be nested.
+     */
+    public void beginBatch() {
+        this.batchDepth++;
+    }
+
+    /**
+     * @brief Ends a batch of changes.
+     *
+     * When the outermost batch ends, the observers of every changed tile
+     * receive a single notification.
+     *
+     * @throws IllegalStateException If no batch is in progress.
+     */
+    public void endBatch() {
+        if (this.batchDepth == 0) {
+            throw new IllegalStateException("No batch in progress");
+        }
+        if (--this.batchDepth > 0) return;
+        // Observers may start new batches, so take over the changed tiles first
+        int[] tiles = this.changed;
+        int count = this.changedCount;
+        this.changed = new int[16];
+        this.changedCount = 0;
+        for (int i = 0; i < count; i++) {
+            this.changedMarks[tiles[i] >> 6] &= ~(1L << tiles[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            Observable.Observer[] tileObservers = this.observers(tiles[i]);
+            if (tileObservers != null) this.notifyTile(tiles[i], tileObservers);
+        }
+    }
+
+    /**
+     * @brief Notifies the observers of a tile that it changed.
+     *
+     * @param index The tile index.
+     * @param tileObservers The observers of the tile.
+     */
+    private void notifyTile(int index, Observable.Observer[] tileObservers) {
+        GameNode node = this.node(index);
+        for (int i = 0; i < tileObservers.length; i++) {
+            tileObservers[i].update(node, NodeEvent.CHANGED);
+        }
+    }
+}
@@ -51,4 +51,13 @@ public enum NodeSide {
     public NodeSide opposite() {
         return values()[(this.ordinal() + 2) % values().length];
     }
+
+    /**
+     * @brief Gets the bit representing this side in a connector mask.
+     *
+     * @return The mask with only this side set.
+     */
+    public int mask() {
+        return 1 << this.ordinal();
+    }
 }
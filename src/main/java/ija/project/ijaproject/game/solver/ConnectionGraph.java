@@ -0,0 +1,272 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Connected components of the connections the solver    #
+# still considers possible. Fixed parts of the board    #
+# are contracted into single nodes, so removing or      #
+# restoring a connection only visits the open parts.    #
+#########################################################
+*/
+
+/**
+ * @file ConnectionGraph.java
+ * @brief Connected components of a graph whose edges are removed and restored by the solver.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import java.util.Arrays;
+
+/**
+ * @class ConnectionGraph
+ * @brief Connected components of a multigraph under edge removals and restorations.
+ * Works like the ConnectivityIndex of a game, but on an arbitrary graph: the solver contracts every
+ * group of tiles fixed and connected to each other into one node, which keeps the components
+ * small in the nodes even when they cover most of the board. Every component counts its bulbs, so
+ * the solver learns in constant time whether a bulb was cut off from the power source.
+ * A restored edge merges the smaller component into the larger one; for a removed edge a search
+ * from both ends, advancing one node at a time on each side, finds out whether the component
+ * split and relabels the smaller part.
+ */
+final class ConnectionGraph {
+    /**
+     * @brief First entry of every node in adjacentNode and adjacentEdge, with a sentinel at the end
+     */
+    private final int[] adjacentStart;
+    /**
+     * @brief Neighbouring nodes of all nodes
+     */
+    private final int[] adjacentNode;
+    /**
+     * @brief Edges leading to the nodes in adjacentNode
+     */
+    private final int[] adjacentEdge;
+    /**
+     * @brief True for the edges currently present
+     */
+    private final boolean[] alive;
+    /**
+     * @brief Number of bulbs in every node
+     */
+    private final int[] nodeBulbs;
+    /**
+     * @brief Node holding the power source, or -1 if there is none
+     */
+    private final int power;
+    /**
+     * @brief Component label of every node
+     */
+    private final int[] label;
+    /**
+     * @brief Number of nodes in the component with the given label
+     */
+    private final int[] size;
+    /**
+     * @brief Number of bulbs in the component with the given label
+     */
+    private final int[] bulbs;
+    /**
+     * @brief Stack of unused component labels
+     */
+    private final int[] freeLabels;
+    /**
+     * @brief Number of labels on the stack of unused labels
+     */
+    private int freeCount = 0;
+    /**
+     * @brief Work queues of the two searches, the first one is also used for relabelling
+     */
+    private final int[] queueA, queueB;
+    /**
+     * @brief Search in which a node was last visited, see epoch
+     */
+    private final int[] visited;
+    /**
+     * @brief Identifier of the last search, the searches from both ends use epoch - 1 and epoch
+     */
+    private int epoch = 0;
+
+    /**
+     * @param nodeCount Number of nodes
+     * @param edgeFrom  First node of every edge
+     * @param edgeTo    Second node of every edge
+     * @param edgeCount Number of edges, all of them present at first
+     * @param nodeBulbs Number of bulbs in every node
+     * @param power     Node holding the power source, or -1 if there is none
+     * @brief Builds the components of a graph with all its edges present.
+     */
+    ConnectionGraph(int nodeCount, int[] edgeFrom, int[] edgeTo, int edgeCount, int[] nodeBulbs, int power) {
+        this.adjacentStart = new int[nodeCount + 1];
+        this.adjacentNode = new int[2 * edgeCount];
+        this.adjacentEdge = new int[2 * edgeCount];
+        this.alive = new boolean[edgeCount];
+        this.nodeBulbs = nodeBulbs;
+        this.power = power;
+        this.label = new int[nodeCount];
+        this.size = new int[nodeCount];
+        this.bulbs = new int[nodeCount];
+        this.freeLabels = new int[nodeCount];
+        this.queueA = new int[nodeCount];
+        this.queueB = new int[nodeCount];
+        this.visited = new int[nodeCount];
+
+        for (int e = 0; e < edgeCount; e++) {
+            this.adjacentStart[edgeFrom[e] + 1]++;
+            this.adjacentStart[edgeTo[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            this.adjacentStart[v + 1] += this.adjacentStart[v];
+        }
+        int[] fill = this.adjacentStart.clone();
+        for (int e = 0; e < edgeCount; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            this.adjacentNode[fill[a]] = b;
+            this.adjacentEdge[fill[a]++] = e;
+            this.adjacentNode[fill[b]] = a;
+            this.adjacentEdge[fill[b]++] = e;
+            this.alive[e] = true;
+        }
+
+        // Label the components by a search from every unlabelled node, unused labels go to the stack
+        int next = 0;
+        Arrays.fill(this.label, -1);
+        for (int v = 0; v < nodeCount; v++) {
+            if (this.label[v] >= 0) continue;
+            this.label[v] = next;
+            int count = relabel(v, -1, next);
+            this.size[next] = count;
+            int componentBulbs = 0;
+            for (int i = 0; i < count; i++) componentBulbs += this.nodeBulbs[this.queueA[i]];
+            this.bulbs[next] = componentBulbs;
+            next++;
+        }
+        for (int l = nodeCount - 1; l >= next; l--) {
+            this.freeLabels[this.freeCount++] = l;
+        }
+    }
+
+    /**
+     * @param edge Edge index
+     * @return True if the edge is currently present
+     * @brief Checks if an edge is present.
+     */
+    boolean alive(int edge) {
+        return this.alive[edge];
+    }
+
+    /**
+     * @return Number of bulbs connected to the power source
+     * @brief Counts the powered bulbs in constant time.
+     */
+    int poweredBulbs() {
+        return this.power < 0 ? 0 : this.bulbs[this.label[this.power]];
+    }
+
+    /**
+     * @param edge Edge index
+     * @param a    First node of the edge
+     * @param b    Second node of the edge
+     * @brief Removes an edge and splits its component if no other path connects its nodes.
+     * Searches from both nodes alternate one node at a time; the search that runs out of nodes
+     * first has visited the smaller part, which gets a new label. Meeting of the searches
+     * proves that the nodes are still connected.
+     */
+    void remove(int edge, int a, int b) {
+        this.alive[edge] = false;
+        this.epoch += 2;
+        int markA = this.epoch - 1, markB = this.epoch;
+        int headA = 0, tailA = 0, headB = 0, tailB = 0;
+        this.visited[a] = markA;
+        this.queueA[tailA++] = a;
+        this.visited[b] = markB;
+        this.queueB[tailB++] = b;
+        while (headA < tailA && headB < tailB) {
+            int result = expand(this.queueA[headA++], markA, markB, this.queueA, tailA);
+            if (result < 0) return;
+            tailA = result;
+            result = expand(this.queueB[headB++], markB, markA, this.queueB, tailB);
+            if (result < 0) return;
+            tailB = result;
+        }
+        int old = this.label[a];
+        int fresh = this.freeLabels[--this.freeCount];
+        int[] part = headA == tailA ? this.queueA : this.queueB;
+        int count = headA == tailA ? tailA : tailB;
+        int partBulbs = 0;
+        for (int i = 0; i < count; i++) {
+            this.label[part[i]] = fresh;
+            partBulbs += this.nodeBulbs[part[i]];
+        }
+        this.size[fresh] = count;
+        this.size[old] -= count;
+        this.bulbs[fresh] = partBulbs;
+        this.bulbs[old] -= partBulbs;
+    }
+
+    /**
+     * @param edge Edge index
+     * @param a    First node of the edge
+     * @param b    Second node of the edge
+     * @brief Restores an edge and merges the components of its nodes.
+     */
+    void restore(int edge, int a, int b) {
+        this.alive[edge] = true;
+        int la = this.label[a], lb = this.label[b];
+        if (la == lb) return;
+        int keep = this.size[la] >= this.size[lb] ? la : lb;
+        int drop = keep == la ? lb : la;
+        int start = keep == la ? b : a;
+        this.label[start] = keep;
+        relabel(start, drop, keep);
+        this.size[keep] += this.size[drop];
+        this.bulbs[keep] += this.bulbs[drop];
+        this.freeLabels[this.freeCount++] = drop;
+    }
+
+    /**
+     * @param current Node to expand
+     * @param own     Mark of this search
+     * @param other   Mark of the opposite search
+     * @param queue   Work queue of this search
+     * @param tail    Number of nodes in the work queue
+     * @return New number of nodes in the work queue, or -1 if the opposite search was reached
+     * @brief Visits the unvisited neighbours of a node in one of the two searches of remove().
+     */
+    private int expand(int current, int own, int other, int[] queue, int tail) {
+        for (int k = this.adjacentStart[current]; k < this.adjacentStart[current + 1]; k++) {
+            if (!this.alive[this.adjacentEdge[k]]) continue;
+            int next = this.adjacentNode[k];
+            if (this.visited[next] == own) continue;
+            if (this.visited[next] == other) return -1;
+            this.visited[next] = own;
+            queue[tail++] = next;
+        }
+        return tail;
+    }
+
+    /**
+     * @param start Node already carrying the new label
+     * @param from  Previous label, -1 for unlabelled nodes
+     * @param to    New label
+     * @return Number of relabelled nodes including the start node, which are left in queueA
+     * @brief Gives a new label to all nodes connected to the start node that carry the previous label.
+     */
+    private int relabel(int start, int from, int to) {
+        int head = 0, tail = 0;
+        this.queueA[tail++] = start;
+        while (head < tail) {
+            int current = this.queueA[head++];
+            for (int k = this.adjacentStart[current]; k < this.adjacentStart[current + 1]; k++) {
+                int next = this.adjacentNode[k];
+                if (this.alive[this.adjacentEdge[k]] && this.label[next] == from) {
+                    this.label[next] = to;
+                    this.queueA[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+}
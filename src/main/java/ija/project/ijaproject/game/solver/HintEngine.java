@@ -0,0 +1,235 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Live hint service of a game. Keeps the set of tiles   #
+# differing from a known solution in sync with the      #
+# board, so a hint is answered in constant time.        #
+#########################################################
+*/
+
+/**
+ * @file HintEngine.java
+ * @brief Hints of the tile to rotate next, kept up to date with a live game.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.common.Observable;
+import ija.project.ijaproject.game.ConnectivityIndex;
+import ija.project.ijaproject.game.Game;
+import ija.project.ijaproject.game.GameEvent;
+import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * @class HintEngine
+ * @brief Tells the player which tile to rotate and how many times.
+ * The engine fixes one solution of the board when it is attached. Generated games start from
+ * their solution, so the rotations back to the initial state of every node give it directly; if
+ * the initial state does not light every bulb, for example on a board built by hand, the board as
+ * it was when the engine was attached is solved by the Solver instead. Solving a large board may
+ * take seconds, so the Solver runs on a background thread and the engine gives no hints until it
+ * finishes; the solution is taken over by the first call after that. Afterwards the engine only
+ * follows the changes of the board: every BoardChanged event updates the set of tiles whose
+ * connectors differ from the solution, so a hint takes constant time however large the board is.
+ * A tile turned to another rotation that also fits some solution still counts as wrong, hints
+ * always lead to the fixed one.
+ */
+public class HintEngine implements Observable.Observer {
+    /**
+     * @param row   Row of the tile to rotate, starting at 1
+     * @param col   Column of the tile to rotate, starting at 1
+     * @param turns Number of clockwise rotations bringing the tile to the solution, 1 to 3
+     * @brief Hint of the next rotation of the player.
+     */
+    public record Hint(int row, int col, int turns) {
+    }
+
+    /**
+     * @brief The game the hints are given for
+     */
+    private final Game game;
+    /**
+     * @brief Connector mask of every tile in the solution, null if the board has no solution or
+     * the solver has not finished yet
+     */
+    private byte[] target;
+    /**
+     * @brief Solver of the board the engine was attached to, null if it is not needed
+     */
+    private final Solver solver;
+    /**
+     * @brief Background search of the solver, null once its result was taken over
+     */
+    private FutureTask<SolverResult> solving;
+    /**
+     * @brief Connector mask of every tile when the engine was attached, the solver starts from them
+     */
+    private final byte[] solvedFrom;
+    /**
+     * @brief Tiles whose connectors differ from the solution, in no particular order
+     */
+    private final int[] wrong;
+    /**
+     * @brief Position of every tile in the wrong array, -1 for tiles matching the solution
+     */
+    private final int[] position;
+    /**
+     * @brief Number of tiles in the wrong array
+     */
+    private int wrongCount = 0;
+
+    /**
+     * @param game Initialized game to give hints for
+     * @brief Fixes a solution of the game, or starts searching for one, and starts following its changes.
+     */
+    public HintEngine(Game game) {
+        this.game = game;
+        int n = game.rows() * game.cols();
+        this.wrong = new int[n];
+        this.position = new int[n];
+        Arrays.fill(this.position, -1);
+
+        byte[] target = new byte[n];
+        this.solvedFrom = new byte[n];
+        for (int i = 0; i < n; i++) {
+            GameNode node = game.node(i);
+            int sides = node.sides();
+            this.solvedFrom[i] = (byte) sides;
+            for (int t = node.turnsToInitialState(); t > 0; t--) sides = GameNode.rotate(sides);
+            target[i] = (byte) sides;
+        }
+        if (lightsEveryBulb(game, target)) {
+            this.solver = null;
+            this.install(target);
+        } else {
+            this.solver = Solver.of(game);
+            this.solving = new FutureTask<>(this.solver::solve);
+            Thread thread = new Thread(this.solving, "hint-solver");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        game.addObserver(this);
+    }
+
+    /**
+     * @return True if the solution is fixed or the board turned out to have none, false while the
+     * solver is still searching
+     * @brief Checks if hints can be given, taking over the result of the solver once it finished.
+     */
+    public boolean ready() {
+        if (this.solving == null) return true;
+        if (!this.solving.isDone()) return false;
+        SolverResult solution = this.solving.state() == Future.State.SUCCESS ? this.solving.resultNow() : null;
+        this.solving = null;
+        if (solution == null || !solution.solved()) return true;
+        byte[] target = new byte[this.solvedFrom.length];
+        for (int i = 0; i < target.length; i++) {
+            int sides = this.solvedFrom[i];
+            for (int t = solution.turns(i); t > 0; t--) sides = GameNode.rotate(sides);
+            target[i] = (byte) sides;
+        }
+        this.install(target);
+        return true;
+    }
+
+    /**
+     * @return The next rotation leading to the solution, or null if the game is complete, has no
+     * solution or the solver has not finished yet, see ready()
+     * @brief Gives a hint in constant time.
+     */
+    public Hint hint() {
+        if (!this.ready() || this.target == null || this.wrongCount == 0 || this.game.isComplete()) return null;
+        int tile = this.wrong[0];
+        int cols = this.game.cols();
+        int turns = GameNode.turnsTo(this.game.node(tile).sides(), this.target[tile]);
+        return new Hint(tile / cols + 1, tile % cols + 1, turns);
+    }
+
+    /**
+     * @return Number of tiles whose connectors differ from the solution, 0 if the board has no
+     * solution or the solver has not finished yet
+     * @brief Counts the tiles left to rotate.
+     */
+    public int remaining() {
+        this.ready();
+        return this.wrongCount;
+    }
+
+    /**
+     * @brief Stops following the changes of the game and the search of the solver, if it still runs.
+     */
+    public void detach() {
+        this.game.removeObserver(this);
+        if (this.solving != null) {
+            this.solver.stop();
+            this.solving.cancel(false);
+            this.solving = null;
+        }
+    }
+
+    /**
+     * @param o     The game that changed
+     * @param event Event describing the change, null if any tile may have changed
+     * @brief Updates the tiles differing from the solution after a change of the board.
+     */
+    @Override
+    public void update(Observable o, Event event) {
+        if (this.target == null) return;
+        if (event instanceof GameEvent.BoardChanged changed) {
+            for (int tile : changed.tiles()) this.refresh(tile);
+        } else if (event == null) {
+            for (int i = 0; i < this.target.length; i++) this.refresh(i);
+        }
+    }
+
+    /**
+     * @param target Connector mask of every tile in the solution
+     * @brief Fixes the solution and collects the tiles differing from it.
+     */
+    private void install(byte[] target) {
+        this.target = target;
+        for (int i = 0; i < target.length; i++) this.refresh(i);
+    }
+
+    /**
+     * @param tile Tile index
+     * @brief Adds a tile to the wrong tiles or removes it, depending on its current connectors.
+     */
+    private void refresh(int tile) {
+        boolean differs = this.game.node(tile).sides() != this.target[tile];
+        int at = this.position[tile];
+        if (differs && at < 0) {
+            this.position[tile] = this.wrongCount;
+            this.wrong[this.wrongCount++] = tile;
+        } else if (!differs && at >= 0) {
+            int last = this.wrong[--this.wrongCount];
+            this.wrong[at] = last;
+            this.position[last] = at;
+            this.position[tile] = -1;
+        }
+    }
+
+    /**
+     * @param game   The game whose nodes are checked
+     * @param target Connector mask of every tile
+     * @return True if the masks connect every bulb to the power source
+     * @brief Checks if connector masks of the nodes of a game form a solution.
+     * The masks are tried on a connectivity index of the board, the game itself is not rotated.
+     */
+    private static boolean lightsEveryBulb(Game game, byte[] target) {
+        ConnectivityIndex index = new ConnectivityIndex(game, target);
+        for (int i = 0; i < target.length; i++) {
+            if (game.node(i).is(NodeType.BULB) && !index.isPowered(i)) return false;
+        }
+        return true;
+    }
+}
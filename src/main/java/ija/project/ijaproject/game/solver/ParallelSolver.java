@@ -0,0 +1,200 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Parallel search of the solver. Runs copies of the     #
+# search starting from different first decisions as     #
+# fork/join tasks and stops all once one finds a        #
+# solution.                                             #
+#########################################################
+*/
+
+/**
+ * @file ParallelSolver.java
+ * @brief Fork/join parallel search of the constraint propagation solver.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import ija.project.ijaproject.game.Game;
+import ija.project.ijaproject.game.Puzzle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * @class ParallelSolver
+ * @brief Solves boards with several differently ordered searches on the threads of a fork/join pool.
+ * The tiles of a board are all tied together by the connections to the power source, so the board
+ * does not fall apart into regions that could be solved independently. Splitting the search into
+ * subproblems with the first decisions fixed does not pay off either: a subproblem without a
+ * solution has to be searched exhaustively, while the sequential search restarts out of a wrong
+ * early decision after a few failures, so the split search explored several times more nodes.
+ *
+ * The search is split on its first decision softly instead. After the propagation, one task per
+ * thread searches the whole board: the first task is the sequential search itself, every other
+ * task tries another rotation of the tile the sequential search branches on first, and tasks
+ * beyond the rotations of that tile also break ties between tiles at random. Every task keeps its
+ * own restarts, weights and saved rotations, and the first task finding a solution stops all
+ * others through the flag their solvers share. The first task never explores more nodes than the
+ * sequential search, so the search takes at most as long as the sequential one on enough
+ * processors, and less whenever another order reaches a solution sooner.
+ *
+ * The tasks run on the threads of the pool, so an interrupt of the thread waiting for them is
+ * passed on through the same flag, and the solving ends with a CancellationException as in the
+ * sequential search.
+ *
+ * Tasks running on the same processor only slow each other down, so the number of tasks is
+ * limited by the available processors as well as by the parallelism of the pool; with a single
+ * processor the board is solved by the sequential search alone.
+ */
+public class ParallelSolver {
+    /**
+     * @brief Pool running the tasks
+     */
+    private final ForkJoinPool pool;
+    /**
+     * @brief Number of searches run at once
+     */
+    private final int searches;
+
+    /**
+     * @param pool Pool running the tasks, its parallelism and the available processors decide the number of searches
+     * @brief Creates a parallel solver running on a pool.
+     */
+    public ParallelSolver(ForkJoinPool pool) {
+        this(pool, Math.min(pool.getParallelism(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param pool     Pool running the tasks
+     * @param searches Number of searches run at once, regardless of the available processors
+     * @brief Creates a parallel solver running a fixed number of searches on a pool.
+     */
+    ParallelSolver(ForkJoinPool pool, int searches) {
+        this.pool = pool;
+        this.searches = Math.max(1, searches);
+    }
+
+    /**
+     * @brief Creates a parallel solver running on the common pool.
+     */
+    public ParallelSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param game The game to solve
+     * @return The outcome with the rotations of the first solution found, if any
+     * @throws CancellationException If the thread was interrupted
+     * @brief Solves the current state of a game board, see Solver.of(Game).
+     */
+    public SolverResult solve(Game game) {
+        return this.solve(Solver.of(game));
+    }
+
+    /**
+     * @param puzzle The puzzle to solve
+     * @return The outcome with the rotations of the first solution found, if any
+     * @throws CancellationException If the thread was interrupted
+     * @brief Solves a generated puzzle, see Solver.of(Puzzle).
+     */
+    public SolverResult solve(Puzzle puzzle) {
+        return this.solve(Solver.of(puzzle));
+    }
+
+    /**
+     * @param solver Fresh solver of the board
+     * @return The outcome with the rotations of the first solution found and the nodes of all searches
+     * @throws CancellationException If the thread was interrupted
+     * @brief Propagates the board, then runs the searches as tasks and waits for them.
+     */
+    private SolverResult solve(Solver solver) {
+        if (this.searches == 1) return solver.solve();
+        long start = System.nanoTime();
+        if (!solver.prepare()) return new SolverResult(false, false, null, 0, System.nanoTime() - start);
+        int tile = solver.branch();
+        if (tile < 0) return new SolverResult(true, false, solver.turns(), 0, System.nanoTime() - start);
+
+        // The copies are made before any search changes the domains of the prepared solver
+        int domain = solver.domain(tile);
+        int rotations = Integer.bitCount(domain);
+        List<Search> tasks = new ArrayList<>(this.searches);
+        tasks.add(new Search(solver, false));
+        for (int i = 1; i < this.searches; i++) {
+            int value = domain;
+            for (int k = i % rotations; k > 0; k--) value &= value - 1;
+            tasks.add(new Search(new Solver(solver, tile, value & -value, i < rotations ? 0 : i), true));
+        }
+        ForkJoinTask<?> all = this.pool.submit(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        try {
+            all.get();
+        } catch (InterruptedException e) {
+            // The searches do not see the interrupt of this thread, they are stopped through their flag
+            solver.stop();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Solving cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        }
+
+        byte[] turns = null;
+        long nodes = 0;
+        for (Search task : tasks) {
+            byte[] found = task.join();
+            if (turns == null) turns = found;
+            nodes += task.solver.nodes();
+        }
+        return new SolverResult(turns != null, false, turns, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @class Search
+     * @brief Task running the whole search of one solver.
+     * Tasks are never serialized, so the solver they hold does not have to be serializable.
+     */
+    @SuppressWarnings("serial")
+    private static final class Search extends RecursiveTask<byte[]> {
+        /**
+         * @brief Solver of the board
+         */
+        private final Solver solver;
+        /**
+         * @brief True if the solver still has to be prepared
+         */
+        private final boolean prepare;
+
+        /**
+         * @param solver  Solver of the board
+         * @param prepare True if the solver still has to be prepared
+         * @brief Creates a task searching a board.
+         */
+        Search(Solver solver, boolean prepare) {
+            this.solver = solver;
+            this.prepare = prepare;
+        }
+
+        /**
+         * @return Rotations of every tile solving the board, or null if the board has no solution
+         * or another task found one first
+         * @brief Searches the board and stops the other tasks once it finds a solution or shows there is none.
+         */
+        @Override
+        protected byte[] compute() {
+            if (this.solver.stopped()) return null;
+            boolean solved = (!this.prepare || this.solver.prepare()) && this.solver.backtrack();
+            // A search that was not stopped and found nothing went through the whole board
+            if (solved || !this.solver.stopped()) this.solver.stop();
+            return solved ? this.solver.turns() : null;
+        }
+    }
+}
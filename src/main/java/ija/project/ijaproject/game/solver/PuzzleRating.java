@@ -0,0 +1,62 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Verification of a puzzle by the solver. Holds the     #
+# number of solutions up to a limit and the search      #
+# effort, which gives a numeric difficulty score.       #
+#########################################################
+*/
+
+/**
+ * @file PuzzleRating.java
+ * @brief Number of solutions and difficulty of a puzzle.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+/**
+ * @param rated      False if the counting gave up at its node limit, the solutions are then only a lower bound
+ * @param solutions  Number of solutions found, at most the limit the counting was given
+ * @param openTiles  Number of tiles with several rotations left after the propagation before the search
+ * @param firstNodes Number of search nodes explored until the first solution
+ * @param nodes      Number of search nodes explored by the whole counting
+ * @param nanos      Time taken by the counting in nanoseconds
+ * @class PuzzleRating
+ * @brief Outcome of counting the solutions of a puzzle, see Solver.rate().
+ */
+public record PuzzleRating(boolean rated, int solutions, int openTiles, long firstNodes, long nodes, long nanos) {
+    /**
+     * @return True if the puzzle has exactly one solution, reliable for counting limits of 2 and
+     * more, false for unrated puzzles
+     * @brief Checks if the solution of the puzzle is unique.
+     */
+    public boolean unique() {
+        return this.rated && this.solutions == 1;
+    }
+
+    /**
+     * @return Difficulty score, 0 for puzzles solved by the propagation alone, only a lower bound
+     * for unrated puzzles
+     * @brief Scores the difficulty of the puzzle by the effort of finding its first solution.
+     * Every tile the propagation could not decide adds one tenth, every doubling of the search
+     * nodes needed for the first solution adds one.
+     */
+    public double difficulty() {
+        // An unrated counting without a solution spent all its nodes looking for the first one
+        long effort = this.rated || this.solutions > 0 ? this.firstNodes : this.nodes;
+        return this.openTiles / 10.0 + Math.log1p(effort) / Math.log(2);
+    }
+
+    /**
+     * @return Text description of the outcome
+     * @brief Describes the number of solutions, the difficulty and the time taken.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s%d solution(s), difficulty %.2f in %.3f ms, %d nodes",
+                this.rated ? "" : "unrated, at least ", this.solutions, this.difficulty(), this.nanos / 1e6, this.nodes);
+    }
+}
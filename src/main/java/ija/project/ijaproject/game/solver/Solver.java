@@ -0,0 +1,1231 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Constraint propagation solver of LightBulb boards.    #
+# Keeps the possible rotations of every tile in a 4-bit #
+# domain, prunes them by edge consistency between       #
+# neighbours and searches the rest by backtracking.     #
+#########################################################
+*/
+
+/**
+ * @file Solver.java
+ * @brief Constraint propagation solver of LightBulb boards.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import ija.project.ijaproject.game.Game;
+import ija.project.ijaproject.game.Puzzle;
+import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodeType;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @class Solver
+ * @brief Finds rotations of all tiles that light every bulb.
+ * A solution connects every bulb to the power source, no connector points out of the board and
+ * connectors of two neighbouring nodes always match; connectors pointing to an empty tile are
+ * allowed, as the generator leaves unused dead ends empty.
+ *
+ * Bit r of the domain of a tile is set if r clockwise rotations of its current connectors are still
+ * possible, rotations giving the same connectors as a smaller one are left out. Whenever a domain
+ * shrinks, the neighbouring tiles are revised: a tile loses the rotations connecting a side its
+ * neighbour can no longer connect, and the rotations leaving open a side its neighbour always
+ * connects. Connections fixed on both ends are joined in a union-find forest and may not close a
+ * cycle; the generator joins all nodes into a tree, so every generated board has such a solution,
+ * and a cycle only takes connectors other nodes need. Before the search, the connections every
+ * path from the power source to a bulb has to use are forced as well. During the search, a
+ * ConnectionGraph of the connections still possible follows every domain change, so a branch is
+ * abandoned as soon as a bulb is cut off from the power source; tiles fixed and connected before
+ * the search form single nodes of the graph, so keeping its components only costs work
+ * proportional to the open parts of the board.
+ *
+ * The search branches on the tile with the fewest rotations per failure it took part in, kept in
+ * a heap, and restarts after a number of failures given by the Luby sequence. Rotations that
+ * succeeded before are tried first after a restart, so the search quickly returns to where it
+ * was, with the failing tiles decided earlier. Domain changes are undone from a trail, so the
+ * search itself allocates almost nothing.
+ */
+public class Solver {
+    /**
+     * @brief Rotations giving distinct connectors, indexed by the connector mask
+     */
+    private static final byte[] DISTINCT = new byte[16];
+    /**
+     * @brief Rotations connecting a side, indexed by (mask << 2 | side ordinal)
+     */
+    private static final byte[] HAS = new byte[16 * 4];
+    /**
+     * @brief Sides connected by any rotation of a domain, indexed by (mask << 4 | domain)
+     */
+    private static final byte[] CAN = new byte[16 * 16];
+    /**
+     * @brief Sides connected by every rotation of a domain, indexed by (mask << 4 | domain)
+     */
+    private static final byte[] MUST = new byte[16 * 16];
+    /**
+     * @brief Number of failures before the first restart of the search
+     */
+    private static final int RESTART_BASE = 16;
+    /**
+     * @brief Mask of the search nodes after which cancellation is checked
+     */
+    static final int CHECK_MASK = 0xFFF;
+
+    static {
+        for (int mask = 0; mask < 16; mask++) {
+            int[] rotated = new int[4];
+            rotated[0] = mask;
+            for (int r = 1; r < 4; r++) rotated[r] = GameNode.rotate(rotated[r - 1]);
+            for (int r = 0; r < 4; r++) {
+                boolean repeated = false;
+                for (int k = 0; k < r; k++) repeated |= rotated[k] == rotated[r];
+                if (!repeated) DISTINCT[mask] |= (byte) (1 << r);
+                for (int side = 0; side < 4; side++) {
+                    if ((rotated[r] & 1 << side) != 0) HAS[mask << 2 | side] |= (byte) (1 << r);
+                }
+            }
+            for (int domain = 0; domain < 16; domain++) {
+                int can = 0, must = 0x0F;
+                for (int r = 0; r < 4; r++) {
+                    if ((domain & 1 << r) == 0) continue;
+                    can |= rotated[r];
+                    must &= rotated[r];
+                }
+                CAN[mask << 4 | domain] = (byte) can;
+                MUST[mask << 4 | domain] = (byte) (domain == 0 ? 0 : must);
+            }
+        }
+    }
+
+    /**
+     * @brief Number of rows on the board
+     */
+    private final int rows;
+    /**
+     * @brief Number of columns on the board
+     */
+    private final int cols;
+    /**
+     * @brief Current connector mask of every tile
+     */
+    private final byte[] base;
+    /**
+     * @brief True for empty tiles, which take no part in the search
+     */
+    private final boolean[] empty;
+    /**
+     * @brief True for bulbs
+     */
+    private final boolean[] bulb;
+    /**
+     * @brief Tile index of the power source, or -1 if there is none
+     */
+    private final int power;
+    /**
+     * @brief Number of bulbs on the board
+     */
+    private final int bulbCount;
+    /**
+     * @brief Domains after the removal of rotations pointing out of the board
+     */
+    private final byte[] initial;
+    /**
+     * @brief Possible rotations of every tile
+     */
+    private final byte[] domain;
+    /**
+     * @brief Components of the connections still possible during the search, null before it
+     */
+    private ConnectionGraph possible;
+    /**
+     * @brief Node of the connection graph containing every tile
+     */
+    private final int[] node;
+    /**
+     * @brief Edge of the connection graph on every side of every tile, indexed by (tile << 2 | side
+     * ordinal), -1 for connections that are fixed or impossible before the search
+     */
+    private final int[] tileEdge;
+    /**
+     * @brief Tiles whose domains changed since the start of the search, in the order of the changes
+     */
+    private int[] trailTile;
+    /**
+     * @brief Domains of the tiles in trailTile before their changes
+     */
+    private byte[] trailDomain;
+    /**
+     * @brief Number of unions in the forest of fixed connections before the changes in trailTile
+     */
+    private int[] trailUnions;
+    /**
+     * @brief Number of entries of the trail
+     */
+    private int trailSize = 0;
+    /**
+     * @brief Union-find forest of the tiles joined by connections fixed on both ends
+     */
+    private final int[] joined;
+    /**
+     * @brief Number of tiles in the tree of every root of the forest
+     */
+    private final int[] joinedSize;
+    /**
+     * @brief Roots attached to another tree of the forest, in the order of the unions
+     */
+    private final int[] unions;
+    /**
+     * @brief Number of unions in the forest
+     */
+    private int unionCount = 0;
+    /**
+     * @brief True if the last fixed connection closed a cycle
+     */
+    private boolean cycle = false;
+    /**
+     * @brief Ring buffer of tiles to revise
+     */
+    private final int[] queue;
+    /**
+     * @brief True for tiles in the queue
+     */
+    private final boolean[] queued;
+    /**
+     * @brief Position of the first tile in the queue
+     */
+    private int head = 0;
+    /**
+     * @brief Number of tiles in the queue
+     */
+    private int queueSize = 0;
+    /**
+     * @brief Number of failures every tile took part in, guides the choice of the tile to branch on
+     */
+    private final int[] weight;
+    /**
+     * @brief The last rotation of every tile that passed the propagation, tried first after restarts
+     */
+    private final byte[] saved;
+    /**
+     * @brief Min-heap of open tiles packed with their branching scores, see key()
+     * Entries of tiles whose score changed stay in the heap and are skipped when they reach the top.
+     */
+    private long[] heap;
+    /**
+     * @brief Number of entries in the heap
+     */
+    private int heapSize = 0;
+    /**
+     * @brief Number of search nodes explored by the current run
+     */
+    private long nodes = 0;
+    /**
+     * @brief Number of search nodes after which the current run gives up
+     */
+    private long nodeLimit = Long.MAX_VALUE;
+    /**
+     * @brief True if the current run reached its node limit
+     */
+    private boolean gaveUp = false;
+    /**
+     * @brief Number of search nodes explored by the current run until its first solution
+     */
+    private long firstNodes = 0;
+    /**
+     * @brief Set once the search should give up, shared by the solvers of one parallel search
+     */
+    private final AtomicBoolean stop;
+
+    /**
+     * @param rows  Number of rows on the board
+     * @param cols  Number of columns on the board
+     * @param types Ordinal of the NodeType of every tile, in row-major order
+     * @param sides Current connector mask of every tile, in row-major order
+     * @brief Creates a solver of a board.
+     */
+    public Solver(int rows, int cols, byte[] types, byte[] sides) {
+        int n = rows * cols;
+        this.rows = rows;
+        this.cols = cols;
+        this.base = new byte[n];
+        this.empty = new boolean[n];
+        this.bulb = new boolean[n];
+        this.initial = new byte[n];
+        this.domain = new byte[n];
+        this.node = new int[n];
+        this.tileEdge = new int[4 * n];
+        this.trailTile = new int[Math.max(16, n)];
+        this.trailDomain = new byte[this.trailTile.length];
+        this.trailUnions = new int[this.trailTile.length];
+        this.joined = new int[n];
+        this.joinedSize = new int[n];
+        this.unions = new int[n];
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+        this.weight = new int[n];
+        this.saved = new byte[n];
+        this.heap = new long[Math.max(16, n)];
+        this.stop = new AtomicBoolean();
+
+        int powerTile = -1, bulbs = 0;
+        for (int i = 0; i < n; i++) {
+            this.base[i] = (byte) (sides[i] & 0x0F);
+            this.empty[i] = types[i] == NodeType.EMPTY.ordinal();
+            this.bulb[i] = types[i] == NodeType.BULB.ordinal();
+            if (this.bulb[i]) bulbs++;
+            if (types[i] == NodeType.POWER.ordinal() && powerTile < 0) powerTile = i;
+
+            int allowed = this.empty[i] ? 1 : DISTINCT[this.base[i]];
+            if (!this.empty[i]) {
+                for (int side = 0; side < 4; side++) {
+                    if (this.neighbour(i, side) < 0) allowed &= ~HAS[this.base[i] << 2 | side];
+                }
+            }
+            this.initial[i] = (byte) allowed;
+        }
+        this.power = powerTile;
+        this.bulbCount = bulbs;
+    }
+
+    /**
+     * @param parent Solver after a successful prepare(), before its search
+     * @param tile   Tile index whose rotation is tried first
+     * @param value  Single rotation bit within the current domain of the tile
+     * @param seed   Seed of the random changes of the branching weights, 0 to keep them
+     * @brief Creates a solver of the same board searching in another order than its parent.
+     * The current domains of the parent become the initial domains, the board description is
+     * shared and the branching weights and saved rotations are copied, so the board can be
+     * searched on another thread while the parent searches it too. The copy tries the given
+     * rotation of the tile first and breaks ties between equally scored tiles at random; it still
+     * keeps all rotations, so it restarts out of a wrong first choice like the parent would.
+     */
+    Solver(Solver parent, int tile, int value, long seed) {
+        int n = parent.domain.length;
+        this.rows = parent.rows;
+        this.cols = parent.cols;
+        this.base = parent.base;
+        this.empty = parent.empty;
+        this.bulb = parent.bulb;
+        this.power = parent.power;
+        this.bulbCount = parent.bulbCount;
+        this.initial = parent.domain.clone();
+        this.domain = new byte[n];
+        this.node = new int[n];
+        this.tileEdge = new int[4 * n];
+        this.trailTile = new int[Math.max(16, n)];
+        this.trailDomain = new byte[this.trailTile.length];
+        this.trailUnions = new int[this.trailTile.length];
+        this.joined = new int[n];
+        this.joinedSize = new int[n];
+        this.unions = new int[n];
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+        this.weight = parent.weight.clone();
+        this.saved = parent.saved.clone();
+        this.saved[tile] = (byte) value;
+        if (seed != 0) {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < n; i++) this.weight[i] += random.nextInt(2);
+        }
+        this.heap = new long[Math.max(16, n)];
+        this.stop = parent.stop;
+    }
+
+    /**
+     * @param game The game to solve
+     * @return Solver of the current state of the game board
+     * @brief Creates a solver of a game, starting from the current rotations of its tiles.
+     */
+    public static Solver of(Game game) {
+        int n = game.rows() * game.cols();
+        byte[] types = new byte[n];
+        byte[] sides = new byte[n];
+        for (int i = 0; i < n; i++) {
+            GameNode node = game.node(i);
+            for (NodeType type : NodeType.values()) {
+                if (node.is(type)) types[i] = (byte) type.ordinal();
+            }
+            sides[i] = (byte) node.sides();
+        }
+        return new Solver(game.rows(), game.cols(), types, sides);
+    }
+
+    /**
+     * @param puzzle The puzzle to solve
+     * @return Solver of the puzzle with its generation rotations applied
+     * @brief Creates a solver of a generated puzzle, starting from the board shown to the player.
+     */
+    public static Solver of(Puzzle puzzle) {
+        byte[] sides = new byte[puzzle.sides().length];
+        for (int i = 0; i < sides.length; i++) {
+            int mask = puzzle.sides()[i];
+            for (int turn = 0; turn < puzzle.turns()[i]; turn++) mask = GameNode.rotate(mask);
+            sides[i] = (byte) mask;
+        }
+        return new Solver(puzzle.rows(), puzzle.cols(), puzzle.types(), sides);
+    }
+
+    /**
+     * @return The outcome with the rotations of the first solution found, if any
+     * @brief Solves the board without a limit on the search.
+     * Boards with few bulbs leave large parts of the board free, which may take the search
+     * millions of nodes on big boards; see solve(long) for a bounded search.
+     */
+    public SolverResult solve() {
+        return this.solve(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param nodeLimit Number of search nodes after which the search gives up
+     * @return The outcome with the rotations of the first solution found, if any; the outcome
+     * tells whether the search gave up before deciding the board
+     * @throws IllegalArgumentException If the node limit is not positive
+     * @brief Solves the board, giving up after a number of search nodes.
+     */
+    public SolverResult solve(long nodeLimit) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("The node limit must be positive");
+        }
+        long start = System.nanoTime();
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.gaveUp = false;
+        boolean solved = this.search();
+        return new SolverResult(solved, this.gaveUp, solved ? this.turns() : null, this.nodes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * @param limit Number of solutions after which the counting stops, at least 1
+     * @return Number of solutions up to the limit and the effort spent finding the first one
+     * @throws IllegalArgumentException If the limit is smaller than 1
+     * @brief Counts the solutions of the board and rates its difficulty.
+     * The search runs without restarts and goes on after every solution, so a limit of 2 decides
+     * whether the solution is unique while stopping at the second solution found.
+     */
+    public PuzzleRating rate(int limit) {
+        return this.rate(limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param limit     Number of solutions after which the counting stops, at least 1
+     * @param nodeLimit Number of search nodes after which the counting gives up
+     * @return Number of solutions up to the limit and the effort spent finding the first one, an
+     * unrated outcome if the counting gave up before reaching the limit or exhausting the search
+     * @throws IllegalArgumentException If a limit is not positive
+     * @brief Counts the solutions of the board and rates its difficulty within a search budget.
+     */
+    public PuzzleRating rate(int limit, long nodeLimit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The solution limit must be at least 1");
+        }
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("The node limit must be positive");
+        }
+        long start = System.nanoTime();
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.gaveUp = false;
+        this.firstNodes = 0;
+        int solutions = 0, open = 0;
+        if (this.prepare()) {
+            for (byte d : this.domain) {
+                if (Integer.bitCount(d) > 1) open++;
+            }
+            solutions = this.backtrack(limit);
+        }
+        return new PuzzleRating(!this.gaveUp, solutions, open, this.firstNodes, this.nodes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * @return True if a solution was found, the domains then hold a single rotation each
+     * @brief Propagates the constraints and searches for a solution by backtracking.
+     */
+    private boolean search() {
+        return this.prepare() && this.backtrack();
+    }
+
+    /**
+     * @return False if the propagation alone shows that the board has no solution
+     * @brief Resets the domains to the initial ones, propagates them and prepares the search.
+     */
+    boolean prepare() {
+        int n = this.domain.length;
+        System.arraycopy(this.initial, 0, this.domain, 0, n);
+        this.trailSize = 0;
+        this.possible = null;
+        if (!this.joinInitial()) return false;
+        for (int i = 0; i < n; i++) {
+            if (this.initial[i] == 0) return false;
+            if (!this.empty[i]) this.enqueue(i);
+        }
+        if (!this.propagate() || !new ConnectionForcing().apply()) return false;
+        this.possible = this.contract();
+
+        this.heapSize = 0;
+        for (int i = 0; i < n; i++) {
+            if (Integer.bitCount(this.domain[i]) > 1) this.push(i);
+        }
+        return this.possible.poweredBulbs() == this.bulbCount;
+    }
+
+    /**
+     * @return True if a solution was found, false if there is none, the search was stopped or it
+     * reached the node limit
+     * @throws CancellationException If the thread was interrupted
+     * @brief Searches the prepared domains by backtracking.
+     */
+    boolean backtrack() {
+        return this.backtrack(1) == 1;
+    }
+
+    /**
+     * @param limit Number of solutions after which the search stops, at least 1
+     * @return Number of solutions found, up to the limit; the domains hold the last one if the
+     * limit was reached
+     * @throws CancellationException If the thread was interrupted
+     * @brief Searches the prepared domains by backtracking, going on after every solution until the limit.
+     * Restarts would find the same solutions again, so only the search for a single solution restarts.
+     */
+    private int backtrack(int limit) {
+        int openCount = 0;
+        for (byte d : this.domain) {
+            if (Integer.bitCount(d) > 1) openCount++;
+        }
+
+        // Every decision fixes one more open tile, which bounds the depth of the search
+        int[] stackTile = new int[openCount + 1];
+        byte[] stackRest = new byte[openCount + 1];
+        int[] stackMark = new int[openCount + 1];
+        int rootMark = this.trailSize;
+        int run = 1;
+        long failures = 0, failureLimit = limit == 1 ? RESTART_BASE : Long.MAX_VALUE;
+        int depth = 0, found = 0;
+        boolean descend = true;
+        while (true) {
+            if (descend) {
+                int tile = this.select();
+                if (tile < 0) {
+                    if (found++ == 0) this.firstNodes = this.nodes;
+                    if (found == limit || depth == 0) return found;
+                    // Go on as if the last rotation failed
+                    descend = false;
+                    continue;
+                }
+                stackTile[depth] = tile;
+                stackRest[depth] = this.domain[tile];
+                stackMark[depth] = this.trailSize;
+                depth++;
+            } else if (failures >= failureLimit) {
+                // Restart with the learned weights, the limits follow the Luby sequence
+                this.undo(rootMark);
+                depth = 0;
+                failures = 0;
+                failureLimit = RESTART_BASE * luby(++run);
+                descend = true;
+                continue;
+            }
+            int top = depth - 1;
+            int tile = stackTile[top];
+            int rest = stackRest[top];
+            if (rest == 0) {
+                // All rotations of the tile failed, try the next rotation of the previous one
+                if (--depth == 0) return found;
+                descend = false;
+                continue;
+            }
+            int value = (rest & this.saved[tile]) != 0 ? this.saved[tile] : rest & -rest;
+            stackRest[top] = (byte) (rest ^ value);
+            this.undo(stackMark[top]);
+            if (this.nodes == this.nodeLimit) {
+                this.gaveUp = true;
+                return found;
+            }
+            if ((++this.nodes & CHECK_MASK) == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Solving cancelled");
+                }
+                if (this.stop.get()) return found;
+            }
+            this.setDomain(tile, value);
+            descend = this.propagate() && this.possible.poweredBulbs() == this.bulbCount;
+            if (descend) {
+                this.saved[tile] = (byte) value;
+            } else {
+                failures++;
+                this.bump(tile);
+            }
+        }
+    }
+
+    /**
+     * @return The open tile to branch on after prepare(), or -1 if every tile has a single rotation
+     * @brief Chooses the tile the search would branch on first.
+     */
+    int branch() {
+        return this.select();
+    }
+
+    /**
+     * @param tile Tile index
+     * @return Bits of the rotations of the tile still possible
+     * @brief Returns the current domain of a tile.
+     */
+    int domain(int tile) {
+        return this.domain[tile];
+    }
+
+    /**
+     * @return Clockwise rotations of every tile, taken from the lowest rotation left in its domain
+     * @brief Reads the rotations of a solution out of the domains.
+     */
+    byte[] turns() {
+        byte[] turns = new byte[this.domain.length];
+        for (int i = 0; i < turns.length; i++) {
+            turns[i] = (byte) Integer.numberOfTrailingZeros(this.domain[i]);
+        }
+        return turns;
+    }
+
+    /**
+     * @return Number of search nodes explored by the current run
+     * @brief Returns the size of the search so far.
+     */
+    long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @brief Asks every solver sharing the stop flag with this one to give up its search.
+     */
+    void stop() {
+        this.stop.set(true);
+    }
+
+    /**
+     * @return True if this solver or one sharing its stop flag asked to give up the search
+     * @brief Checks if the search was stopped.
+     */
+    boolean stopped() {
+        return this.stop.get();
+    }
+
+    /**
+     * @param i Position in the sequence, starting at 1
+     * @return The i-th element of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     * @brief Computes the multiplier of the restart limit.
+     */
+    private static long luby(int i) {
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) k++;
+            if ((1L << k) - 1 == i) return 1L << (k - 1);
+            i -= (1 << (k - 1)) - 1;
+        }
+    }
+
+    /**
+     * @return The open tile with the fewest rotations per failure, or -1 if every tile has a single rotation
+     * @brief Chooses the tile to branch on.
+     */
+    private int select() {
+        while (this.heapSize > 0) {
+            long top = this.heap[0];
+            int tile = (int) top;
+            if (Integer.bitCount(this.domain[tile]) > 1 && this.key(tile) == top) return tile;
+            this.pop();
+        }
+        return -1;
+    }
+
+    /**
+     * @param tile Tile index
+     * @return The branching score of the tile in the high half and the tile in the low half
+     * @brief Packs the branching score of a tile, smaller scores are branched on first.
+     * The score is the number of rotations divided by the failures the tile took part in;
+     * bits of a positive float compare like the float itself.
+     */
+    private long key(int tile) {
+        float score = Integer.bitCount(this.domain[tile]) / (this.weight[tile] + 1f);
+        return (long) Float.floatToIntBits(score) << 32 | tile;
+    }
+
+    /**
+     * @param tile Tile index
+     * @brief Counts a failure of a tile and updates its branching score.
+     */
+    private void bump(int tile) {
+        this.weight[tile]++;
+        if (Integer.bitCount(this.domain[tile]) > 1) this.push(tile);
+    }
+
+    /**
+     * @param tile Tile index
+     * @brief Adds an open tile with its current score to the heap.
+     */
+    private void push(int tile) {
+        if (this.heapSize == this.heap.length) {
+            if (this.heapSize >= 4 * this.domain.length) {
+                this.compactHeap();
+            } else {
+                this.heap = Arrays.copyOf(this.heap, this.heapSize * 2);
+            }
+        }
+        long value = this.key(tile);
+        int i = this.heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (this.heap[parent] <= value) break;
+            this.heap[i] = this.heap[parent];
+            i = parent;
+        }
+        this.heap[i] = value;
+    }
+
+    /**
+     * @brief Removes the entry with the smallest score from the heap.
+     */
+    private void pop() {
+        long last = this.heap[--this.heapSize];
+        int i = 0;
+        int half = this.heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.heapSize && this.heap[child + 1] < this.heap[child]) child++;
+            if (last <= this.heap[child]) break;
+            this.heap[i] = this.heap[child];
+            i = child;
+        }
+        this.heap[i] = last;
+    }
+
+    /**
+     * @brief Rebuilds the heap from the current scores of the open tiles, dropping outdated entries.
+     */
+    private void compactHeap() {
+        this.heapSize = 0;
+        for (int i = 0; i < this.domain.length; i++) {
+            if (Integer.bitCount(this.domain[i]) > 1) this.heap[this.heapSize++] = this.key(i);
+        }
+        Arrays.sort(this.heap, 0, this.heapSize);
+    }
+
+    /**
+     * @return False if the connections fixed from the start already close a cycle
+     * @brief Joins the tiles connected in the initial domains in the forest of fixed connections.
+     */
+    private boolean joinInitial() {
+        for (int i = 0; i < this.joined.length; i++) {
+            this.joined[i] = i;
+            this.joinedSize[i] = 1;
+        }
+        this.unionCount = 0;
+        this.cycle = false;
+        for (int i = 0; i < this.domain.length; i++) {
+            if (this.empty[i]) continue;
+            int must = MUST[this.base[i] << 4 | this.domain[i]];
+            for (int side = 1; side <= 2; side++) {
+                int next = this.neighbour(i, side);
+                if (next >= 0 && (must >> side & 1) != 0 && this.mustConnect(next, side ^ 2)) {
+                    this.join(i, next);
+                }
+            }
+        }
+        return !this.cycle;
+    }
+
+    /**
+     * @param tile Tile index
+     * @param side Ordinal of the side, see NodeSide
+     * @return True if the tile is not empty and every rotation left connects the side
+     * @brief Checks if a tile is fixed to connect a side.
+     */
+    private boolean mustConnect(int tile, int side) {
+        return !this.empty[tile] && (MUST[this.base[tile] << 4 | this.domain[tile]] >> side & 1) != 0;
+    }
+
+    /**
+     * @param tile Tile index
+     * @return The root of the tree of fixed connections containing the tile
+     * @brief Finds the root of a tile in the forest of fixed connections.
+     */
+    private int root(int tile) {
+        while (this.joined[tile] != tile) tile = this.joined[tile];
+        return tile;
+    }
+
+    /**
+     * @param a Index of the first tile
+     * @param b Index of the second tile
+     * @brief Records a fixed connection of two tiles, a connection within one tree closes a cycle.
+     * The smaller tree is attached to the larger one, so the trees stay shallow without path
+     * compression and the union can be undone by detaching the root again.
+     */
+    private void join(int a, int b) {
+        a = this.root(a);
+        b = this.root(b);
+        if (a == b) {
+            this.cycle = true;
+            return;
+        }
+        if (this.joinedSize[a] < this.joinedSize[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        this.joined[b] = a;
+        this.joinedSize[a] += this.joinedSize[b];
+        this.unions[this.unionCount++] = b;
+    }
+
+    /**
+     * @return False if the domain of a tile became empty or the fixed connections closed a cycle
+     * @brief Revises the queued tiles until no domain changes.
+     */
+    private boolean propagate() {
+        int n = this.queue.length;
+        while (this.queueSize > 0 && !this.cycle) {
+            int i = this.queue[this.head];
+            this.head = this.head + 1 == n ? 0 : this.head + 1;
+            this.queueSize--;
+            this.queued[i] = false;
+
+            int mask = this.base[i];
+            int current = this.domain[i];
+            int must = MUST[mask << 4 | current];
+            int tree = this.root(i);
+            int revised = current;
+            for (int side = 0; side < 4; side++) {
+                int next = this.neighbour(i, side);
+                if (next < 0 || this.empty[next]) continue;
+                int key = this.base[next] << 4 | this.domain[next];
+                int opposite = side ^ 2;
+                boolean fixed = (must >> side & 1) != 0 && (MUST[key] >> opposite & 1) != 0;
+                if ((CAN[key] >> opposite & 1) == 0 || !fixed && this.root(next) == tree) {
+                    revised &= ~HAS[mask << 2 | side];
+                } else if ((MUST[key] >> opposite & 1) != 0) {
+                    revised &= HAS[mask << 2 | side];
+                }
+            }
+            if (revised == current) continue;
+            if (revised == 0) {
+                this.clearQueue();
+                this.bump(i);
+                return false;
+            }
+            this.setDomain(i, revised);
+        }
+        if (!this.cycle) return true;
+        this.cycle = false;
+        this.clearQueue();
+        return false;
+    }
+
+    /**
+     * @param tile  Tile index
+     * @param value New domain of the tile
+     * @brief Changes the domain of a tile, records the old one on the trail and queues the neighbours.
+     */
+    private void setDomain(int tile, int value) {
+        if (this.trailSize == this.trailTile.length) {
+            this.trailTile = Arrays.copyOf(this.trailTile, this.trailSize * 2);
+            this.trailDomain = Arrays.copyOf(this.trailDomain, this.trailSize * 2);
+            this.trailUnions = Arrays.copyOf(this.trailUnions, this.trailSize * 2);
+        }
+        int old = this.domain[tile];
+        this.trailTile[this.trailSize] = tile;
+        this.trailDomain[this.trailSize] = (byte) old;
+        this.trailUnions[this.trailSize++] = this.unionCount;
+        this.domain[tile] = (byte) value;
+        this.updatePossible(tile, old, value);
+        int fixed = MUST[this.base[tile] << 4 | value] & ~MUST[this.base[tile] << 4 | old];
+        if (Integer.bitCount(value) > 1) this.push(tile);
+        for (int side = 0; side < 4; side++) {
+            int next = this.neighbour(tile, side);
+            if (next < 0 || this.empty[next]) continue;
+            if ((fixed >> side & 1) != 0 && this.mustConnect(next, side ^ 2)) this.join(tile, next);
+            this.enqueue(next);
+        }
+    }
+
+    /**
+     * @param mark Size of the trail to return to
+     * @brief Restores the domains changed since the trail had the given size.
+     */
+    private void undo(int mark) {
+        while (this.trailSize > mark) {
+            this.trailSize--;
+            int tile = this.trailTile[this.trailSize];
+            int old = this.domain[tile];
+            int value = this.trailDomain[this.trailSize];
+            this.domain[tile] = (byte) value;
+            this.updatePossible(tile, old, value);
+            while (this.unionCount > this.trailUnions[this.trailSize]) {
+                int child = this.unions[--this.unionCount];
+                this.joinedSize[this.joined[child]] -= this.joinedSize[child];
+                this.joined[child] = child;
+            }
+            if (Integer.bitCount(value) > 1) this.push(tile);
+        }
+    }
+
+    /**
+     * @return Graph of the connections possible after the propagation at the root of the search
+     * @brief Builds the connection graph, contracting the tiles fixed and connected to each other.
+     * Domains only shrink below the root, so the contracted connections stay in place during the
+     * whole search and connections impossible at the root never come back.
+     */
+    private ConnectionGraph contract() {
+        int n = this.domain.length;
+        // Union-find of the fixed connections, with path halving
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int i = 0; i < n; i++) {
+            if (Integer.bitCount(this.domain[i]) != 1) continue;
+            int must = MUST[this.base[i] << 4 | this.domain[i]];
+            for (int side = 1; side <= 2; side++) {
+                int next = this.neighbour(i, side);
+                if (next < 0 || (must >> side & 1) == 0 || Integer.bitCount(this.domain[next]) != 1) continue;
+                if ((MUST[this.base[next] << 4 | this.domain[next]] >> (side ^ 2) & 1) == 0) continue;
+                int a = find(parent, i), b = find(parent, next);
+                if (a != b) parent[b] = a;
+            }
+        }
+
+        int nodeCount = 0;
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < n; i++) {
+            int root = find(parent, i);
+            if (index[root] < 0) index[root] = nodeCount++;
+            this.node[i] = index[root];
+        }
+        int[] nodeBulbs = new int[nodeCount];
+        for (int i = 0; i < n; i++) {
+            if (this.bulb[i]) nodeBulbs[this.node[i]]++;
+        }
+
+        int[] edgeFrom = new int[2 * n];
+        int[] edgeTo = new int[2 * n];
+        int edgeCount = 0;
+        Arrays.fill(this.tileEdge, -1);
+        for (int i = 0; i < n; i++) {
+            for (int side = 1; side <= 2; side++) {
+                int next = this.neighbour(i, side);
+                if (next < 0 || this.node[i] == this.node[next] || !this.connectable(i, side, next)) continue;
+                edgeFrom[edgeCount] = this.node[i];
+                edgeTo[edgeCount] = this.node[next];
+                this.tileEdge[i << 2 | side] = edgeCount;
+                this.tileEdge[next << 2 | side ^ 2] = edgeCount++;
+            }
+        }
+        return new ConnectionGraph(nodeCount, edgeFrom, edgeTo, edgeCount, nodeBulbs,
+                this.power < 0 ? -1 : this.node[this.power]);
+    }
+
+    /**
+     * @param parent The union-find forest
+     * @param tile   The tile to look up
+     * @return The root of the tree containing the tile
+     * @brief Finds the root of a tile, halving the path on the way.
+     */
+    private static int find(int[] parent, int tile) {
+        while (parent[tile] != tile) {
+            parent[tile] = parent[parent[tile]];
+            tile = parent[tile];
+        }
+        return tile;
+    }
+
+    /**
+     * @param tile Tile index
+     * @param side Ordinal of the side, see NodeSide
+     * @param next Index of the neighbouring tile on the side
+     * @return True if both tiles can still connect to their common side
+     * @brief Checks if a connection between two neighbouring tiles is still possible.
+     */
+    private boolean connectable(int tile, int side, int next) {
+        return (CAN[this.base[tile] << 4 | this.domain[tile]] >> side & 1) != 0
+                && (CAN[this.base[next] << 4 | this.domain[next]] >> (side ^ 2) & 1) != 0;
+    }
+
+    /**
+     * @param tile Tile index
+     * @param from The previous domain of the tile
+     * @param to   The new domain of the tile
+     * @brief Passes a change of the possibly connected sides of a tile to the connection graph.
+     */
+    private void updatePossible(int tile, int from, int to) {
+        int mask = this.base[tile] << 4;
+        if (this.possible == null || CAN[mask | from] == CAN[mask | to]) return;
+        for (int side = 0; side < 4; side++) {
+            int edge = this.tileEdge[tile << 2 | side];
+            if (edge < 0) continue;
+            int next = this.neighbour(tile, side);
+            boolean present = this.connectable(tile, side, next);
+            if (present == this.possible.alive(edge)) continue;
+            if (present) {
+                this.possible.restore(edge, this.node[tile], this.node[next]);
+            } else {
+                this.possible.remove(edge, this.node[tile], this.node[next]);
+            }
+        }
+    }
+
+    /**
+     * @param tile Tile index
+     * @brief Adds a tile to the queue unless it is already there.
+     */
+    private void enqueue(int tile) {
+        if (this.queued[tile]) return;
+        this.queued[tile] = true;
+        int tail = this.head + this.queueSize;
+        this.queue[tail >= this.queue.length ? tail - this.queue.length : tail] = tile;
+        this.queueSize++;
+    }
+
+    /**
+     * @brief Empties the queue after a contradiction.
+     */
+    private void clearQueue() {
+        while (this.queueSize > 0) {
+            this.queued[this.queue[this.head]] = false;
+            this.head = this.head + 1 == this.queue.length ? 0 : this.head + 1;
+            this.queueSize--;
+        }
+    }
+
+    /**
+     * @param tile Tile index
+     * @param side Ordinal of the side, see NodeSide
+     * @return Index of the neighbouring tile, or -1 if it lies outside the board
+     * @brief Determines the tile next to a tile.
+     */
+    private int neighbour(int tile, int side) {
+        return switch (side) {
+            case 0 -> tile >= this.cols ? tile - this.cols : -1;
+            case 1 -> tile % this.cols < this.cols - 1 ? tile + 1 : -1;
+            case 2 -> tile < (this.rows - 1) * this.cols ? tile + this.cols : -1;
+            default -> tile % this.cols > 0 ? tile - 1 : -1;
+        };
+    }
+
+    /**
+     * @class ConnectionForcing
+     * @brief Forces the connections every path from the power source to some bulb has to use.
+     * A depth-first search over the connections still possible computes for every tile the
+     * lowest discovery time reachable from its subtree. A child subtree whose lowest time does not
+     * precede its parent can only be left through the parent, so if it holds a bulb, the parent has
+     * to connect into the subtree and, unless it is the power source, also to one of its other
+     * neighbours; a bridge to such a subtree forces both of its ends. Bulbs likewise have to connect
+     * out of the subtrees separated by them. The search visits the whole board, so it runs only
+     * before the backtracking, until it forces nothing new.
+     */
+    private final class ConnectionForcing {
+        /**
+         * @brief True for tiles reached by the current search
+         */
+        private final boolean[] reached = new boolean[domain.length];
+        /**
+         * @brief Discovery time of every reached tile
+         */
+        private final int[] discovered = new int[domain.length];
+        /**
+         * @brief Tiles in the order of their discovery
+         */
+        private final int[] visitOrder = new int[domain.length];
+        /**
+         * @brief Last discovery time within the search subtree of every tile
+         */
+        private final int[] last = new int[domain.length];
+        /**
+         * @brief Lowest discovery time reachable from the search subtree of every tile
+         */
+        private final int[] low = new int[domain.length];
+        /**
+         * @brief Number of bulbs in the search subtree of every tile
+         */
+        private final int[] below = new int[domain.length];
+        /**
+         * @brief Tile every tile was reached from, -1 for the power source
+         */
+        private final int[] parent = new int[domain.length];
+        /**
+         * @brief Side of the parent connected to every tile
+         */
+        private final byte[] parentSide = new byte[domain.length];
+        /**
+         * @brief Next side to explore from every tile
+         */
+        private final byte[] nextSide = new byte[domain.length];
+        /**
+         * @brief Rotations every reached tile may keep
+         */
+        private final byte[] allowed = new byte[domain.length];
+        /**
+         * @brief Stack of the search
+         */
+        private final int[] stack = new int[domain.length];
+
+        /**
+         * @return False if the board cannot be solved from the current domains
+         * @brief Alternates the forcing with the propagation until neither changes a domain.
+         */
+        boolean apply() {
+            while (true) {
+                int forced = this.force();
+                if (forced < 0) return false;
+                if (forced == 0) return true;
+                if (!propagate()) return false;
+            }
+        }
+
+        /**
+         * @return -1 if a bulb cannot be reached from the power source, 1 if a domain was restricted,
+         * 0 otherwise
+         * @brief Runs one search and restricts the domains by its results.
+         */
+        private int force() {
+            if (power < 0) return bulbCount == 0 ? 0 : -1;
+            Arrays.fill(this.reached, false);
+            Arrays.fill(this.discovered, -1);
+            int order = 0, found = 0, top = 0;
+            this.visit(power, -1, order++);
+            this.stack[top++] = power;
+            while (top > 0) {
+                int tile = this.stack[top - 1];
+                if (this.nextSide[tile] < 4) {
+                    int side = this.nextSide[tile]++;
+                    int next = this.possibleNeighbour(tile, side);
+                    if (next < 0 || next == this.parent[tile]) continue;
+                    if (this.reached[next]) {
+                        this.low[tile] = Math.min(this.low[tile], this.discovered[next]);
+                        continue;
+                    }
+                    this.visit(next, tile, order++);
+                    this.parentSide[next] = (byte) side;
+                    this.stack[top++] = next;
+                    if (bulb[next]) found++;
+                    continue;
+                }
+                top--;
+                this.last[tile] = order - 1;
+                int parentTile = this.parent[tile];
+                if (parentTile < 0) continue;
+                this.low[parentTile] = Math.min(this.low[parentTile], this.low[tile]);
+                this.below[parentTile] += this.below[tile];
+            }
+            if (found < bulbCount) return -1;
+
+            // Collect all restrictions first, the search data describe the domains before any change
+            for (int k = 0; k < order; k++) {
+                int tile = this.visitOrder[k];
+                int separated = 0;
+                boolean required = bulb[tile];
+                for (int side = 0; side < 4; side++) {
+                    int child = this.possibleNeighbour(tile, side);
+                    if (child < 0 || this.parent[child] != tile || this.parentSide[child] != side) continue;
+                    if (this.low[child] < this.discovered[tile]) continue;
+                    int into = this.sidesInto(tile, this.discovered[child], this.last[child]);
+                    separated |= into;
+                    if (this.below[child] == 0) continue;
+                    required = true;
+                    this.allowed[tile] &= (byte) this.rotationsConnecting(tile, into);
+                    if (into == 1 << side) {
+                        this.allowed[child] &= HAS[base[child] << 2 | side ^ 2];
+                    }
+                }
+                if (required && tile != power) {
+                    int out = this.sidesInto(tile, 0, order - 1) & ~separated;
+                    this.allowed[tile] &= (byte) this.rotationsConnecting(tile, out);
+                }
+            }
+
+            boolean changed = false;
+            for (int k = 0; k < order; k++) {
+                int tile = this.visitOrder[k];
+                int current = domain[tile];
+                int restricted = current & this.allowed[tile];
+                if (restricted == current) continue;
+                if (restricted == 0) return -1;
+                setDomain(tile, restricted);
+                changed = true;
+            }
+            return changed ? 1 : 0;
+        }
+
+        /**
+         * @param tile  Tile index
+         * @param from  The tile the search came from, or -1 for the power source
+         * @param order Discovery time of the tile
+         * @brief Marks a tile as reached.
+         */
+        private void visit(int tile, int from, int order) {
+            this.reached[tile] = true;
+            this.discovered[tile] = order;
+            this.visitOrder[order] = tile;
+            this.low[tile] = order;
+            this.below[tile] = bulb[tile] ? 1 : 0;
+            this.allowed[tile] = 0x0F;
+            this.nextSide[tile] = 0;
+            this.parent[tile] = from;
+        }
+
+        /**
+         * @param tile  Tile index
+         * @param first The first discovery time of the range
+         * @param last  The last discovery time of the range
+         * @return Mask of the sides of the tile possibly connected to tiles discovered within the range
+         * @brief Finds the sides of a tile leading into a part of the search tree.
+         */
+        private int sidesInto(int tile, int first, int last) {
+            int sides = 0;
+            for (int side = 0; side < 4; side++) {
+                int next = this.possibleNeighbour(tile, side);
+                if (next < 0) continue;
+                int time = this.discovered[next];
+                if (time >= first && time <= last) sides |= 1 << side;
+            }
+            return sides;
+        }
+
+        /**
+         * @param tile  Tile index
+         * @param sides Mask of sides
+         * @return Rotations of the tile connecting at least one of the sides
+         * @brief Finds the rotations of a tile connecting some of the given sides.
+         */
+        private int rotationsConnecting(int tile, int sides) {
+            int rotations = 0;
+            for (int side = 0; side < 4; side++) {
+                if ((sides & 1 << side) != 0) rotations |= HAS[base[tile] << 2 | side];
+            }
+            return rotations;
+        }
+
+        /**
+         * @param tile Tile index
+         * @param side Ordinal of the side, see NodeSide
+         * @return Index of the neighbouring tile if both tiles can still connect to their common side,
+         * -1 otherwise
+         * @brief Determines the tile a tile may be connected to on a side.
+         */
+        private int possibleNeighbour(int tile, int side) {
+            if ((CAN[base[tile] << 4 | domain[tile]] >> side & 1) == 0) return -1;
+            int next = neighbour(tile, side);
+            if (next < 0 || empty[next]) return -1;
+            if ((CAN[base[next] << 4 | domain[next]] >> (side ^ 2) & 1) == 0) return -1;
+            return next;
+        }
+    }
+}
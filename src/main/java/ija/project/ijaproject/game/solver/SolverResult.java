@@ -0,0 +1,54 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Outcome of solving a puzzle. Holds the rotations      #
+# solving the board together with the number of        #
+# explored search nodes and the time taken.             #
+#########################################################
+*/
+
+/**
+ * @file SolverResult.java
+ * @brief Outcome of a run of the puzzle solver.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+/**
+ * @param solved True if a solution was found
+ * @param gaveUp True if the search reached its node limit before it found a solution or showed
+ *               there is none
+ * @param turns  Clockwise rotations of every tile leading from the solved board to the solution,
+ *               in row-major order, or null if no solution was found
+ * @param nodes  Number of search nodes explored, one per value tried for a branching tile
+ * @param nanos  Time taken by the search in nanoseconds
+ * @class SolverResult
+ * @brief Outcome of a run of the puzzle solver.
+ */
+public record SolverResult(boolean solved, boolean gaveUp, byte[] turns, long nodes, long nanos) {
+    /**
+     * @param index Row-major tile index
+     * @return Number of clockwise rotations of the tile in the solution
+     * @throws IllegalStateException If no solution was found
+     * @brief Returns the rotations of a tile leading to the solution.
+     */
+    public int turns(int index) {
+        if (!this.solved) {
+            throw new IllegalStateException(this.gaveUp ? "The search gave up" : "The puzzle has no solution");
+        }
+        return this.turns[index];
+    }
+
+    /**
+     * @return Text description of the outcome
+     * @brief Describes the outcome with the explored nodes and the time taken.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s in %.3f ms, %d nodes",
+                this.solved ? "solved" : this.gaveUp ? "gave up" : "no solution", this.nanos / 1e6, this.nodes);
+    }
+}
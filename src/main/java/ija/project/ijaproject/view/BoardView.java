@@ -10,15 +10,19 @@
 # background, shadow, border, and places NodeView       #
 # components according to their position. Supports both #
 # interactive (game )and read-only (informational)      #
-# display.                                              #
+# display. Redraws only the nodes changed by the game.  #
 #########################################################
 */
 
 package ija.project.ijaproject.view;
 
+import ija.project.ijaproject.common.Event;
+import ija.project.ijaproject.common.Observable;
 import ija.project.ijaproject.game.Game;
+import ija.project.ijaproject.game.GameEvent;
 import ija.project.ijaproject.game.node.GameNode;
 import ija.project.ijaproject.game.node.NodePosition;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.effect.DropShadow;
@@ -28,16 +32,24 @@ import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.LinearGradient;
 import javafx.scene.paint.Stop;
 
+import java.util.Arrays;
+
 /**
  * @class BoardView
  * @brief A JavaFX GridPane that visually represents the game board.
  * The BoardView class is responsible for rendering the game board using JavaFX.
  * It creates a grid layout with nodes styled for better visual appearance.
+ * It observes the game and redraws only the nodes listed in GameEvent.BoardChanged events.
  */
-public class BoardView extends GridPane {
+public class BoardView extends GridPane implements Observable.Observer {
     private final Game game;
     /// < The game instance associated with this view.
     private final boolean infoBoardView; ///< Flag indicating if this is an informational board view.
+    private final NodeView[] views;      ///< Node views indexed by the row-major tile index.
+    private final boolean[] dirty;       ///< Flags of node views waiting for a redraw.
+    private int[] dirtyTiles = new int[16]; ///< Tile indexes of node views waiting for a redraw.
+    private int dirtyCount = 0;          ///< Number of tiles in the dirtyTiles array.
+    private boolean updatePending = false; ///< Flag indicating that a redraw is already scheduled.
 
     /**
      * @param game          The game instance to be displayed.
@@ -47,6 +59,8 @@ public class BoardView extends GridPane {
     public BoardView(final Game game, boolean infoBoardView) {
         this.game = game;
         this.infoBoardView = infoBoardView;
+        this.views = new NodeView[game.rows() * game.cols()];
+        this.dirty = new boolean[this.views.length];
 
         // Increased spacing for better visual separation
         this.setHgap(3);
@@ -85,6 +99,7 @@ public class BoardView extends GridPane {
         )));
 
         initializeBoard();
+        game.addObserver(this);
     }
 
     /**
@@ -107,8 +122,63 @@ public class BoardView extends GridPane {
             for (int col = 1; col <= game.cols(); col++) {
                 GameNode field = game.node(new NodePosition(row, col));
                 NodeView nodeView = new NodeView(field, this.infoBoardView, nodeSize, game);
+                this.views[field.index()] = nodeView;
                 this.add(nodeView, col - 1, row - 1);
             }
         }
     }
+
+    /**
+     * @brief Stops following the game once the view is no longer shown.
+     * A redraw already scheduled still runs, but the view is not redrawn for later changes.
+     */
+    public void dispose() {
+        game.removeObserver(this);
+    }
+
+    /**
+     * @param observable The observable object.
+     * @param event      The event description.
+     * @brief Schedules a redraw of the nodes changed in the game.
+     * A GameEvent.BoardChanged event redraws only the listed nodes, any other event
+     * (initialization of the game, its completion or leaving the completed state) redraws the
+     * whole board, since node views show the rotation counts only while the game is complete.
+     * All changes reported before the redraw runs share a single Platform.runLater call.
+     */
+    @Override
+    public void update(Observable observable, Event event) {
+        if (event instanceof GameEvent.BoardChanged changed) {
+            for (int tile : changed.tiles()) markDirty(tile);
+        } else {
+            for (int tile = 0; tile < this.views.length; tile++) markDirty(tile);
+        }
+        if (updatePending) return;
+        updatePending = true;
+        Platform.runLater(this::redraw);
+    }
+
+    /**
+     * @param tile Row-major index of the tile
+     * @brief Marks the view of a tile for the next redraw.
+     */
+    private void markDirty(int tile) {
+        if (this.dirty[tile]) return;
+        this.dirty[tile] = true;
+        if (this.dirtyCount == this.dirtyTiles.length) {
+            this.dirtyTiles = Arrays.copyOf(this.dirtyTiles, this.dirtyCount * 2);
+        }
+        this.dirtyTiles[this.dirtyCount++] = tile;
+    }
+
+    /**
+     * @brief Redraws the views of all tiles marked since the last redraw.
+     */
+    private void redraw() {
+        updatePending = false;
+        for (int i = 0; i < this.dirtyCount; i++) {
+            this.dirty[this.dirtyTiles[i]] = false;
+            this.views[this.dirtyTiles[i]].updateView();
+        }
+        this.dirtyCount = 0;
+    }
 }
@@ -6,18 +6,16 @@
 #                     Description:                      #
 # Visual component of a single game node. Uses JavaFX   #
 # to render node state, connections, and type (POWER,   #
-# BULB, etc.). Observes GameNode and Game state to      #
-# update its appearance. Handles click interaction,     #
+# BULB, etc.). Redrawn by BoardView when the node       #
+# changes. Handles click interaction,                   #
 # layout, and conditional info overlays.                #
 #########################################################
 */
 
 package ija.project.ijaproject.view;
 
-import ija.project.ijaproject.common.Observable;
 import ija.project.ijaproject.game.Game;
 import ija.project.ijaproject.game.node.GameNode;
-import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -34,9 +32,9 @@ import static ija.project.ijaproject.game.node.NodeType.*;
  * @class NodeView
  * @brief A JavaFX Pane that visually represents a single game node.
  * The NodeView class is responsible for rendering a single game node using JavaFX.
- * It observes changes in the associated GameNode and updates its visual representation accordingly.
+ * Its visual representation is redrawn by the owning BoardView when the associated GameNode changes.
  */
-public class NodeView extends Pane implements Observable.Observer {
+public class NodeView extends Pane {
     private final GameNode node;                /// < The game node associated with this view.
     private final boolean infoView;             /// < Flag indicating if this is an informational view.
     private final Game game;                    /// < The game instance associated with this view.
@@ -69,8 +67,6 @@ public class NodeView extends Pane implements Observable.Observer {
                 updateView();
             }
         });
-        game.addObserver(this);
-        node.addObserver(this);
     }
 
     /**
@@ -91,7 +87,7 @@ public class NodeView extends Pane implements Observable.Observer {
      * This method clears the current view and redraws the node based on its state,
      * including connections, power status, and type (e.g., POWER, BULB).
      */
-    private void updateView() {
+    void updateView() {
         this.getChildren().clear();
         double width = this.getWidth();
         double height = this.getHeight();
@@ -183,14 +179,4 @@ public class NodeView extends Pane implements Observable.Observer {
             }
         }
     }
-
-    /**
-     * @param observable The observable object.
-     * @param event      The event description.
-     * @brief Updates the view when the observed object changes.
-     */
-    @Override
-    public void update(Observable observable, String event) {
-        Platform.runLater(this::updateView);
-    }
 }
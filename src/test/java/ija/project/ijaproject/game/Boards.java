@@ -0,0 +1,87 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Helpers shared by the tests of the game: generated    #
+# and hand-made boards and a comparable snapshot of a   #
+# board.                                                #
+#########################################################
+*/
+
+/**
+ * @file Boards.java
+ * @brief Test helpers creating and describing game boards.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodePosition;
+import ija.project.ijaproject.game.node.NodeSide;
+
+import java.util.Random;
+
+/**
+ * @class Boards
+ * @brief Creates generated games and snapshots of their boards for the tests.
+ */
+final class Boards {
+    private Boards() {
+    }
+
+    /**
+     * @param size Number of rows and columns of the board
+     * @param seed Seed of the generation
+     * @return A generated game of a square board with bulbs on a third of the tiles
+     * @brief Generates a game for a test.
+     */
+    static Game generate(int size, long seed) {
+        return GameRepo.generate(new GenerationProfile(size, size, 0.3, size * size, seed));
+    }
+
+    /**
+     * @param seed Seed of the generation and of the moves
+     * @return A generated game with 200 random rotations of the player
+     * @brief Generates a game and plays random moves on it.
+     */
+    static Game played(long seed) {
+        Game game = generate(16, seed);
+        Random random = new Random(seed);
+        for (int i = 0; i < 200; i++) game.node(random.nextInt(16 * 16)).turn(true);
+        return game;
+    }
+
+    /**
+     * @return A game built node by node, with rotations of the generation and of the player
+     * @brief Builds a small game without the generator.
+     */
+    static Game handMade() {
+        Game game = new Game(2, 3);
+        game.createPowerNode(new NodePosition(1, 1), NodeSide.EAST, NodeSide.SOUTH);
+        game.createLinkNode(new NodePosition(1, 2), NodeSide.EAST, NodeSide.WEST);
+        game.createBulbNode(new NodePosition(1, 3), NodeSide.WEST);
+        game.createBulbNode(new NodePosition(2, 1), NodeSide.NORTH);
+        game.node(1).turn(false);
+        game.logger().logAction(GameEvent.GENERATION_FINISHED);
+        game.init();
+        game.node(1).turn(true);
+        game.node(2).turn(true);
+        return game;
+    }
+
+    /**
+     * @param game The game to describe
+     * @return Type, connected sides, player rotations and power state of every tile
+     * @brief Takes a snapshot of a board, equal snapshots mean equal boards.
+     */
+    static String state(Game game) {
+        StringBuilder state = new StringBuilder();
+        for (int i = 0; i < game.rows() * game.cols(); i++) {
+            GameNode node = game.node(i);
+            state.append(node).append(node.turnCount()).append(node.isPowered() ? '+' : '-').append(' ');
+        }
+        return state.toString();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the connectivity index: splits and merges of #
+# components under rotations and the power query.       #
+#########################################################
+*/
+
+/**
+ * @file ConnectivityIndexTest.java
+ * @brief Tests of the connectivity index.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodePosition;
+import ija.project.ijaproject.game.node.NodeSide;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class ConnectivityIndexTest
+ * @brief Compares the index maintained under rotations with an index built from scratch and with
+ * the power propagation of the game.
+ */
+class ConnectivityIndexTest {
+    /**
+     * @param index The index
+     * @param n     Number of tiles
+     * @return The components of all tiles, numbered in the order of their first tile, followed by their sizes
+     * @brief Describes the components of an index independently of its labels.
+     */
+    private static int[] components(ConnectivityIndex index, int n) {
+        int[] first = new int[n];
+        int[] result = new int[2 * n];
+        Arrays.fill(first, -1);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int label = index.component(i);
+            if (first[label] < 0) first[label] = count++;
+            result[i] = first[label];
+            result[n + i] = index.componentSize(i);
+        }
+        return result;
+    }
+
+    /**
+     * @brief Rotations of the index split and merge its components the same as building it again.
+     */
+    @Test
+    void rotationsMatchRebuiltIndex() {
+        Game game = Boards.generate(12, 1);
+        int n = game.rows() * game.cols();
+        String board = Boards.state(game);
+        ConnectivityIndex index = new ConnectivityIndex(game);
+        Random random = new Random(1);
+        byte[] sides = new byte[n];
+        for (int step = 0; step < 500; step++) {
+            int tile = random.nextInt(n);
+            if (random.nextBoolean()) {
+                index.rotate(tile);
+            } else {
+                index.rotateBack(tile);
+            }
+            for (int i = 0; i < n; i++) sides[i] = (byte) index.sides(i);
+            ConnectivityIndex rebuilt = new ConnectivityIndex(game, sides);
+            assertArrayEquals(components(rebuilt, n), components(index, n), "step " + step);
+            for (int i = 0; i < n; i++) assertEquals(rebuilt.isPowered(i), index.isPowered(i));
+        }
+        // Rotations of the index are hypothetical, the game stays as it was
+        assertEquals(board, Boards.state(game));
+    }
+
+    /**
+     * @brief An attached index answers the power query the same as the propagation of the game.
+     */
+    @Test
+    void attachedIndexFollowsGame() {
+        Game game = Boards.generate(16, 2);
+        int n = game.rows() * game.cols();
+        ConnectivityIndex index = new ConnectivityIndex(game);
+        index.attach(game);
+        Random random = new Random(2);
+        for (int step = 0; step < 300; step++) {
+            if (step % 10 == 0) {
+                game.batch(() -> {
+                    for (int i = 0; i < 20; i++) game.node(random.nextInt(n)).turn(true);
+                });
+            } else {
+                game.node(random.nextInt(n)).turnBack(true);
+            }
+            for (int i = 0; i < n; i++) {
+                assertEquals(game.node(i).isPowered(), index.isPowered(i), "step " + step + " tile " + i);
+            }
+        }
+    }
+
+    /**
+     * @brief Turning the middle link of a line splits it, turning it back merges it again.
+     */
+    @Test
+    void splitAndMergeLine() {
+        Game game = new Game(1, 3);
+        game.createPowerNode(new NodePosition(1, 1), NodeSide.EAST);
+        game.createLinkNode(new NodePosition(1, 2), NodeSide.EAST, NodeSide.WEST);
+        game.createBulbNode(new NodePosition(1, 3), NodeSide.WEST);
+        game.init();
+        ConnectivityIndex index = new ConnectivityIndex(game);
+        assertTrue(index.connected(0, 2));
+        assertEquals(3, index.componentSize(1));
+        assertTrue(index.isPowered(2));
+
+        index.rotate(1);
+        assertFalse(index.connected(0, 1));
+        assertFalse(index.connected(1, 2));
+        assertEquals(1, index.componentSize(0));
+        assertFalse(index.isPowered(2));
+        assertTrue(index.isPowered(0));
+
+        index.rotateBack(1);
+        assertTrue(index.connected(0, 2));
+        assertEquals(3, index.componentSize(2));
+        assertTrue(index.isPowered(2));
+        assertTrue(game.isComplete());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the autosave journal: recovery of the game,  #
+# its log and replay position, torn records and the     #
+# publishing of a new journal.                          #
+#########################################################
+*/
+
+/**
+ * @file GameJournalTest.java
+ * @brief Tests of the autosave journal.
+ */
+
+package ija.project.ijaproject.game;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @class GameJournalTest
+ * @brief Journals games and recovers them as after a crash of the application.
+ */
+class GameJournalTest {
+    @TempDir
+    Path dir;          ///< Directory of the journal.
+    private Path file; ///< The journal file.
+
+    /**
+     * @brief Places the journal into the temporary directory.
+     */
+    @BeforeEach
+    void setUp() {
+        this.file = this.dir.resolve("autosave.blog");
+    }
+
+    /**
+     * @param game  The game to play
+     * @param moves Number of moves
+     * @param seed  Seed of the moves
+     * @brief Rotates random tiles of a game as the player.
+     */
+    private static void play(Game game, int moves, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < moves; i++) game.node(random.nextInt(game.rows() * game.cols())).turn(true);
+    }
+
+    /**
+     * @param game      The journaled game
+     * @param recovered The game recovered from its journal
+     * @brief Asserts that the recovered game has the board, the log and the replay position of the game.
+     */
+    private static void assertRecovered(Game game, Game recovered) {
+        assertNotNull(recovered);
+        assertEquals(Boards.state(game), Boards.state(recovered));
+        assertEquals(game.logger().size(), recovered.logger().size());
+        assertEquals(game.logger().position(), recovered.logger().position());
+        for (int i = 0; i < game.logger().size(); i++) {
+            assertEquals(game.logger().action(i).toString(), recovered.logger().action(i).toString());
+        }
+    }
+
+    /**
+     * @throws IOException If the journal cannot be created
+     * @brief A closed journal recovers the game with all its moves.
+     */
+    @Test
+    void recoversGame() throws IOException {
+        Game game = Boards.generate(12, 1);
+        GameJournal journal = new GameJournal(this.file, 16);
+        game.logger().journal(journal);
+        play(game, 500, 1);
+        journal.close();
+        assertRecovered(game, GameJournal.recover(this.file));
+    }
+
+    /**
+     * @throws IOException If the journal cannot be created
+     * @brief Replay steps are journaled as positions, the moves after the position stay in the log.
+     */
+    @Test
+    void recoversReplayPosition() throws IOException {
+        Game game = Boards.generate(12, 2);
+        GameJournal journal = new GameJournal(this.file);
+        game.logger().journal(journal);
+        play(game, 100, 2);
+        ReplayEngine replay = new ReplayEngine(game, 8);
+        replay.seek(40);
+        replay.seek(30);
+        journal.close();
+        Game recovered = GameJournal.recover(this.file);
+        assertRecovered(game, recovered);
+        assertEquals(30, new ReplayEngine(recovered).move());
+    }
+
+    /**
+     * @throws IOException If the journal cannot be created
+     * @brief A move after a replay step drops the moves after the position from the recovered log.
+     */
+    @Test
+    void recoversMoveAfterReplay() throws IOException {
+        Game game = Boards.generate(12, 3);
+        GameJournal journal = new GameJournal(this.file);
+        game.logger().journal(journal);
+        play(game, 100, 3);
+        new ReplayEngine(game).seek(50);
+        play(game, 10, 4);
+        journal.close();
+        assertRecovered(game, GameJournal.recover(this.file));
+    }
+
+    /**
+     * @throws IOException If the journal cannot be created or cut
+     * @brief A record torn by a crash is ignored, the actions before it are recovered.
+     */
+    @Test
+    void ignoresTornRecord() throws IOException {
+        Game game = Boards.generate(12, 5);
+        GameJournal journal = new GameJournal(this.file);
+        game.logger().journal(journal);
+        play(game, 50, 5);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        Game recovered = GameJournal.recover(this.file);
+        assertNotNull(recovered);
+        assertEquals(game.logger().size() - 1, recovered.logger().size());
+    }
+
+    /**
+     * @throws IOException If a journal cannot be created
+     * @brief A journal that was not published leaves the previous journal file in place.
+     */
+    @Test
+    void keepsPreviousJournalUntilPublished() throws IOException {
+        Game game = Boards.generate(12, 6);
+        GameJournal journal = new GameJournal(this.file);
+        game.logger().journal(journal);
+        play(game, 20, 6);
+        journal.close();
+
+        GameJournal unpublished = new GameJournal(this.file);
+        unpublished.append(GameEvent.GENERATION_FINISHED);
+        unpublished.close();
+        assertFalse(Files.exists(this.dir.resolve("autosave.blog" + GameJournal.TEMP_SUFFIX)));
+        assertRecovered(game, GameJournal.recover(this.file));
+    }
+
+    /**
+     * @brief There is nothing to recover without a journal.
+     */
+    @Test
+    void missingJournal() {
+        assertNull(GameJournal.recover(this.file));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Round trips of games through the text game log and    #
+# loading of damaged text logs.                         #
+#########################################################
+*/
+
+/**
+ * @file GameLogLoaderTest.java
+ * @brief Tests of saving and loading text game logs.
+ */
+
+package ija.project.ijaproject.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @class GameLogLoaderTest
+ * @brief Saves games in the text format and checks that loading them rebuilds the same board.
+ */
+class GameLogLoaderTest {
+    @TempDir
+    Path dir; ///< Directory of the written logs.
+
+    /**
+     * @throws IOException If writing or reading the log fails
+     * @brief A game is rebuilt from its text log, and saving it again writes the same text.
+     */
+    @Test
+    void textRoundTrip() throws IOException {
+        for (Game game : new Game[]{Boards.played(2), Boards.handMade()}) {
+            Path file = this.dir.resolve("game.log");
+            game.logger().saveText(file);
+            Game loaded = GameLogLoader.load(file);
+            assertNotNull(loaded);
+            assertEquals(Boards.state(game), Boards.state(loaded));
+            Path again = this.dir.resolve("again.log");
+            loaded.logger().saveText(again);
+            assertEquals(Files.readString(file), Files.readString(again));
+        }
+    }
+
+    /**
+     * @throws IOException If writing or reading the log fails
+     * @brief A text log saved as binary and back keeps its board.
+     */
+    @Test
+    void textToBinaryRoundTrip() throws IOException {
+        Game game = Boards.played(3);
+        Path text = this.dir.resolve("game.log");
+        game.logger().saveText(text);
+        Path binary = this.dir.resolve("game.blog");
+        GameLogLoader.load(text).logger().saveBinary(binary);
+        assertEquals(Boards.state(game), Boards.state(GameLogReader.load(binary)));
+    }
+
+    /**
+     * @throws IOException If writing the log fails
+     * @brief Records outside of the board are skipped, a board without power is rejected.
+     */
+    @Test
+    void damagedTextLog() throws IOException {
+        Path file = this.dir.resolve("damaged.log");
+        Files.writeString(file, "G [1@2]\nN {P[1@1][EAST]}\nN {B[1@2][WEST]}\nN {L[3@1][EAST,WEST]}\n"
+                + "Gen finished\nT [9@9]\nT [1@1]\n");
+        Game game = GameLogLoader.load(file);
+        assertNotNull(game);
+        assertEquals(1, game.node(0).turnCount());
+        Files.writeString(file, "G [1@2]\nN {B[1@2][WEST]}\n");
+        assertThrows(IOException.class, () -> GameLogLoader.load(file));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Round trips of games through the binary game log and  #
+# reading of damaged binary logs.                       #
+#########################################################
+*/
+
+/**
+ * @file GameLogReaderTest.java
+ * @brief Tests of writing and reading binary game logs.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class GameLogReaderTest
+ * @brief Saves games in the binary format and checks that reading them rebuilds the same game.
+ */
+class GameLogReaderTest {
+    @TempDir
+    Path dir; ///< Directory of the written logs.
+
+    /**
+     * @throws IOException If writing or reading the log fails
+     * @brief Generated and hand-made games are rebuilt from their binary logs with the same logs.
+     */
+    @Test
+    void roundTrip() throws IOException {
+        for (Game game : new Game[]{Boards.played(1), Boards.handMade()}) {
+            Path file = this.dir.resolve("game.blog");
+            game.logger().saveBinary(file);
+            Game loaded = GameLogReader.load(file);
+            assertEquals(Boards.state(game), Boards.state(loaded));
+            assertEquals(game.logger().size(), loaded.logger().size());
+            for (int i = 0; i < game.logger().size(); i++) {
+                assertEquals(game.logger().action(i).toString(), loaded.logger().action(i).toString());
+            }
+        }
+    }
+
+    /**
+     * @param events Events of the log
+     * @return The written log file
+     * @throws IOException If writing the log fails
+     * @brief Writes events to a binary log file.
+     */
+    private Path write(GameEvent... events) throws IOException {
+        Path file = this.dir.resolve("written.blog");
+        try (GameLogWriter writer = new GameLogWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 0)) {
+            for (GameEvent event : events) writer.write(event);
+        }
+        return file;
+    }
+
+    /**
+     * @throws IOException If writing or reading the log fails
+     * @brief Nodes on an occupied tile, without connectors or not fitting their type are skipped.
+     */
+    @Test
+    void skipsInvalidNodes() throws IOException {
+        Game game = GameLogReader.load(this.write(
+                new GameEvent.Created(1, 3),
+                new GameEvent.NodeCreated(1, 1, NodeType.POWER, NodeSide.EAST.mask()),
+                new GameEvent.NodeCreated(1, 1, NodeType.BULB, NodeSide.EAST.mask()),
+                new GameEvent.NodeCreated(1, 2, NodeType.BULB, 0),
+                new GameEvent.NodeCreated(1, 2, NodeType.LINK, NodeSide.WEST.mask()),
+                new GameEvent.NodeCreated(1, 3, NodeType.POWER, NodeSide.WEST.mask()),
+                new GameEvent.NodeCreated(1, 2, NodeType.BULB, NodeSide.WEST.mask()),
+                GameEvent.GENERATION_FINISHED));
+        assertTrue(game.node(0).is(NodeType.POWER));
+        assertTrue(game.node(1).is(NodeType.BULB));
+        assertTrue(game.node(2).is(NodeType.EMPTY));
+        assertTrue(game.isComplete());
+    }
+
+    /**
+     * @throws IOException If writing the log fails
+     * @brief Logs that cannot be rebuilt fail with an IOException.
+     */
+    @Test
+    void rejectsBrokenLogs() throws IOException {
+        // No bulb
+        Path noBulb = this.write(new GameEvent.Created(1, 2),
+                new GameEvent.NodeCreated(1, 1, NodeType.POWER, NodeSide.EAST.mask()));
+        assertThrows(IOException.class, () -> GameLogReader.load(noBulb));
+        // A tile outside of the board
+        Path outside = this.write(new GameEvent.Created(1, 2),
+                new GameEvent.NodeCreated(1, 1, NodeType.POWER, NodeSide.EAST.mask()),
+                new GameEvent.Rotation(1, 5, true, true));
+        assertThrows(IOException.class, () -> GameLogReader.load(outside));
+        // A log torn within its header or within the tiles of the generated board
+        Path file = this.dir.resolve("torn.blog");
+        Boards.played(4).logger().saveBinary(file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int cut : new int[]{3, 40, 200}) {
+            Files.write(file, Arrays.copyOf(bytes, cut));
+            assertThrows(IOException.class, () -> GameLogReader.load(file));
+        }
+    }
+
+    /**
+     * @throws IOException If rebuilding the game fails
+     * @brief Events before the board, a second board and rotations outside of the board are skipped.
+     */
+    @Test
+    void buildSkipsMisplacedEvents() throws IOException {
+        Game game = GameLogReader.build(List.of(
+                new GameEvent.Rotation(1, 1, true, true),
+                new GameEvent.Created(1, 2),
+                new GameEvent.NodeCreated(1, 1, NodeType.POWER, NodeSide.NORTH.mask()),
+                new GameEvent.NodeCreated(1, 2, NodeType.BULB, NodeSide.WEST.mask()),
+                new GameEvent.Created(3, 3),
+                new GameEvent.Rotation(2, 2, true, true),
+                new GameEvent.Rotation(1, 1, true, true)));
+        assertEquals(2, game.cols());
+        assertEquals(1, game.node(0).turnCount());
+        assertTrue(game.isComplete());
+        assertEquals(0, game.node(1).turnCount());
+        assertThrows(IOException.class, () -> GameLogReader.build(List.of(new GameEvent.Rotation(1, 1, true, true))));
+    }
+}
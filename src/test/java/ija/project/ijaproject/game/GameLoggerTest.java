@@ -0,0 +1,154 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the chunked action log: truncation by a new  #
+# action in the middle of a replay and regrowth.        #
+#########################################################
+*/
+
+/**
+ * @file GameLoggerTest.java
+ * @brief Tests of the chunked game log.
+ */
+
+package ija.project.ijaproject.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class GameLoggerTest
+ * @brief Logs more actions than fit into several chunks and cuts the log in the middle.
+ */
+class GameLoggerTest {
+    private static final int ACTIONS = 3 * 4096 + 100; ///< Logged rotations, spanning four chunks.
+
+    /**
+     * @param logger The log
+     * @return The rotations of all actions of the log, see GameLogger.rotation()
+     * @brief Reads the whole log.
+     */
+    private static List<Integer> rotations(GameLogger logger) {
+        List<Integer> rotations = new ArrayList<>();
+        for (int i = 0; i < logger.size(); i++) rotations.add(logger.rotation(i));
+        return rotations;
+    }
+
+    /**
+     * @param game  The game to play
+     * @param count Number of moves
+     * @param from  Tile of the first move, the following moves take the following tiles
+     * @brief Rotates tiles of a game that are not connected to all sides, so every move is logged.
+     */
+    private static void play(Game game, int count, int from) {
+        int n = game.rows() * game.cols();
+        for (int i = 0, tile = from; i < count; tile++) {
+            if (game.node(tile % n).sides() == 0x0F || game.node(tile % n).sides() == 0) continue;
+            game.node(tile % n).turn(true);
+            i++;
+        }
+    }
+
+    /**
+     * @brief A new action after stepping back cuts off the later actions, across chunk boundaries.
+     */
+    @Test
+    void newActionTruncatesLog() {
+        Game game = Boards.generate(16, 1);
+        GameLogger logger = game.logger();
+        int start = logger.size();
+        play(game, ACTIONS, 0);
+        assertEquals(start + ACTIONS, logger.size());
+        List<Integer> before = rotations(logger);
+
+        int cut = start + 5000;
+        logger.seek(cut);
+        assertEquals(start + ACTIONS, logger.size());
+        int revision = logger.revision();
+        play(game, 1, 7);
+        assertEquals(cut + 2, logger.size());
+        assertEquals(cut + 1, logger.position());
+        assertNotEquals(revision, logger.revision());
+        assertEquals(before.subList(0, cut + 1), rotations(logger).subList(0, cut + 1));
+        assertEquals(7 << 1 | 1, logger.rotation(cut + 1));
+
+        // The log grows again over the released chunks without stale entries
+        play(game, ACTIONS, 3);
+        List<Integer> after = rotations(logger);
+        assertEquals(cut + 2 + ACTIONS, after.size());
+        assertEquals(before.subList(0, cut + 1), after.subList(0, cut + 1));
+        for (int i = cut + 1; i < after.size(); i++) {
+            GameEvent.Rotation rotation = assertInstanceOf(GameEvent.Rotation.class, logger.action(i));
+            assertEquals(after.get(i) >>> 1, (rotation.row() - 1) * game.cols() + rotation.col() - 1);
+        }
+    }
+
+    /**
+     * @brief Cutting the log before its last action that is not a rotation moves the start of the replay.
+     */
+    @Test
+    void truncationMovesReplayStart() {
+        Game game = Boards.generate(8, 2);
+        GameLogger logger = game.logger();
+        play(game, 10, 0);
+        logger.logAction(GameEvent.GENERATION_FINISHED);
+        int finished = logger.size() - 1;
+        assertEquals(finished, logger.replayStart());
+        play(game, 10, 0);
+        logger.seek(finished - 3);
+        play(game, 1, 0);
+        assertTrue(logger.replayStart() < finished);
+        assertFalse(logger.action(logger.replayStart()) instanceof GameEvent.Rotation);
+    }
+
+    /**
+     * @brief Cutting the log releases the actions of the cut part that are kept as objects.
+     */
+    @Test
+    void truncationReleasesObjects() {
+        Game game = Boards.generate(8, 4);
+        GameLogger logger = game.logger();
+        int objects = logger.objectCount();
+        play(game, 10, 0);
+        int cut = logger.size() - 1;
+        logger.logAction(GameEvent.COMPLETED);
+        play(game, 10, 0);
+        logger.logAction(GameEvent.REOPENED);
+        assertEquals(objects + 2, logger.objectCount());
+
+        logger.seek(cut);
+        play(game, 1, 0);
+        assertEquals(objects, logger.objectCount());
+        logger.logAction(GameEvent.REOPENED);
+        assertEquals(objects + 1, logger.objectCount());
+        assertInstanceOf(GameEvent.Reopened.class, logger.action(logger.size() - 1));
+        assertInstanceOf(GameEvent.Generated.class, logger.action(0));
+    }
+
+    /**
+     * @brief Clearing the log releases all actions.
+     */
+    @Test
+    void clearEmptiesLog() {
+        Game game = Boards.generate(8, 3);
+        GameLogger logger = game.logger();
+        play(game, 5000, 0);
+        logger.clear();
+        assertEquals(0, logger.size());
+        assertEquals(-1, logger.replayStart());
+        assertEquals(0, logger.objectCount());
+        assertFalse(logger.previous());
+        assertFalse(logger.next());
+    }
+}
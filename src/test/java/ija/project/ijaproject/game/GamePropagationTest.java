@@ -0,0 +1,103 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the incremental energy propagation against   #
+# the full propagation performed by Game.init().        #
+#########################################################
+*/
+
+/**
+ * @file GamePropagationTest.java
+ * @brief Tests of the incremental energy propagation.
+ */
+
+package ija.project.ijaproject.game;
+
+import ija.project.ijaproject.game.node.NodePosition;
+import ija.project.ijaproject.game.node.NodeSide;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class GamePropagationTest
+ * @brief Compares the board after every incremental update with the board propagated from scratch.
+ * Game.init() recomputes the power state of the whole board, so after it the board has to be the
+ * same as the one maintained by the incremental updates.
+ */
+class GamePropagationTest {
+    /**
+     * @param game The game to check
+     * @brief Asserts that the full propagation does not change the board or its completion.
+     */
+    private static void assertPropagated(Game game) {
+        String incremental = Boards.state(game);
+        boolean complete = game.isComplete();
+        game.init();
+        assertEquals(incremental, Boards.state(game));
+        assertEquals(complete, game.isComplete());
+    }
+
+    /**
+     * @brief Single rotations in both directions match the full propagation.
+     */
+    @Test
+    void rotationsMatchFullPropagation() {
+        for (long seed = 0; seed < 8; seed++) {
+            Game game = Boards.generate(12, seed);
+            Random random = new Random(seed);
+            for (int step = 0; step < 300; step++) {
+                int tile = random.nextInt(game.rows() * game.cols());
+                if (random.nextBoolean()) {
+                    game.node(tile).turn(true);
+                } else {
+                    game.node(tile).turnBack(true);
+                }
+                assertPropagated(game);
+            }
+        }
+    }
+
+    /**
+     * @brief Rotations performed in a batch are propagated once and match the full propagation.
+     */
+    @Test
+    void batchMatchesFullPropagation() {
+        Game game = Boards.generate(24, 3);
+        Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            game.batch(() -> {
+                for (int i = 0; i < 40; i++) game.node(random.nextInt(game.rows() * game.cols())).turn(true);
+            });
+            assertPropagated(game);
+        }
+    }
+
+    /**
+     * @brief Connecting and disconnecting the only bulb completes and reopens a hand-made game.
+     */
+    @Test
+    void handMadeBoardCompletesAndReopens() {
+        Game game = new Game(1, 3);
+        game.createPowerNode(new NodePosition(1, 1), NodeSide.EAST);
+        game.createLinkNode(new NodePosition(1, 2), NodeSide.NORTH, NodeSide.SOUTH);
+        game.createBulbNode(new NodePosition(1, 3), NodeSide.WEST);
+        game.init();
+        assertFalse(game.isComplete());
+        game.node(1).turn(true);
+        assertTrue(game.isComplete());
+        assertTrue(game.node(2).isPowered());
+        assertPropagated(game);
+        game.node(1).turn(true);
+        assertFalse(game.isComplete());
+        assertFalse(game.node(2).isPowered());
+        assertPropagated(game);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the seekable replay against the boards       #
+# recorded after every move of a game.                  #
+#########################################################
+*/
+
+/**
+ * @file ReplayEngineTest.java
+ * @brief Tests of the seekable replay.
+ */
+
+package ija.project.ijaproject.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class ReplayEngineTest
+ * @brief Plays a game while recording its board after every move, then seeks the replay to moves.
+ */
+class ReplayEngineTest {
+    private static final int MOVES = 600; ///< Number of moves played.
+
+    private Game game;                                     ///< The replayed game.
+    private final List<String> boards = new ArrayList<>(); ///< Board after every move, from move 0.
+
+    /**
+     * @param seed Seed of the generation and of the moves
+     * @brief Plays a generated game and records its boards.
+     */
+    private void play(long seed) {
+        this.game = Boards.generate(10, seed);
+        Random random = new Random(seed);
+        this.boards.clear();
+        this.boards.add(Boards.state(this.game));
+        while (this.boards.size() <= MOVES) {
+            int size = this.game.logger().size();
+            int tile = random.nextInt(100);
+            // Rotations back are not logged, the replay holds only clockwise moves
+            this.game.node(tile).turn(true);
+            if (this.game.logger().size() > size) this.boards.add(Boards.state(this.game));
+        }
+    }
+
+    /**
+     * @param replay The replay
+     * @param move   The move to seek to
+     * @brief Seeks a replay and asserts that the board is the one recorded at the move.
+     */
+    private void assertSeek(ReplayEngine replay, int move) {
+        replay.seek(move);
+        assertEquals(move, replay.move());
+        assertEquals(this.boards.get(move), Boards.state(this.game), "move " + move);
+    }
+
+    /**
+     * @brief Seeking to random moves, near and far, restores the recorded boards.
+     */
+    @Test
+    void seekMatchesRecordedBoards() {
+        for (int interval : new int[]{1, 16, ReplayEngine.DEFAULT_INTERVAL}) {
+            this.play(interval);
+            ReplayEngine replay = new ReplayEngine(this.game, interval);
+            assertEquals(MOVES, replay.moves());
+            assertEquals(MOVES, replay.move());
+            Random random = new Random(interval);
+            for (int i = 0; i < 200; i++) {
+                int move = random.nextInt(MOVES + 1);
+                this.assertSeek(replay, move);
+                // Neighbouring moves are walked directly instead of restored from a checkpoint
+                if (move > 0) this.assertSeek(replay, move - 1);
+                if (move < MOVES) this.assertSeek(replay, move + 1);
+            }
+            this.assertSeek(replay, 0);
+            this.assertSeek(replay, MOVES);
+        }
+    }
+
+    /**
+     * @brief A replay built in the middle of the moves starts from that move.
+     */
+    @Test
+    void buildInMiddleOfReplay() {
+        this.play(5);
+        new ReplayEngine(this.game).seek(MOVES / 3);
+        ReplayEngine replay = new ReplayEngine(this.game, 8);
+        assertEquals(MOVES / 3, replay.move());
+        this.assertSeek(replay, MOVES);
+        this.assertSeek(replay, 0);
+    }
+
+    /**
+     * @brief A new move makes the replay stale, it refuses to seek.
+     */
+    @Test
+    void newMoveInvalidatesReplay() {
+        this.play(7);
+        ReplayEngine replay = new ReplayEngine(this.game);
+        replay.seek(MOVES / 2);
+        assertTrue(replay.isCurrent());
+        int size = this.game.logger().size();
+        for (int tile = 0; this.game.logger().size() == size; tile++) this.game.node(tile).turn(true);
+        assertFalse(replay.isCurrent());
+        assertThrows(IllegalStateException.class, () -> replay.seek(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> new ReplayEngine(this.game).seek(MOVES + 10));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Throughput and memory benchmark of the maze           #
+# generators across board sizes. Run with `make bench`, #
+# board sizes may be passed as arguments.               #
+#########################################################
+*/
+
+/**
+ * @file MazeBenchmark.java
+ * @brief Command line benchmark of the maze generation strategies.
+ */
+
+package ija.project.ijaproject.game.maze;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+/**
+ * @class MazeBenchmark
+ * @brief Measures time and allocated memory of every maze generator.
+ * Each generator builds full spanning trees of square boards; the reported time is the average
+ * of the measured runs after a warm-up, the allocated bytes are read from the thread MXBean.
+ */
+public class MazeBenchmark {
+    private static final int[] DEFAULT_SIZES = {64, 256, 1024, 2048}; ///< Board sizes measured by default.
+    private static final long TARGET_CELLS = 1L << 22;                ///< Cells generated per measurement.
+
+    /**
+     * @param args Sizes of the square boards, defaults to 64, 256, 1024 and 2048.
+     * @brief Runs the benchmark and prints one line per generator and board size.
+     */
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        MazeGenerator[] generators = {new PrimMaze(), new KruskalMaze(), new WilsonMaze(), new BacktrackerMaze()};
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+
+        System.out.printf("%-16s %6s %6s %12s %14s %14s%n",
+                "generator", "size", "runs", "ms/board", "Mcells/s", "bytes/cell");
+        for (int size : sizes) {
+            int cells = size * size;
+            int runs = (int) Math.max(1, TARGET_CELLS / cells);
+            for (MazeGenerator generator : generators) {
+                SplittableRandom rand = new SplittableRandom(size);
+                for (int i = 0; i < runs; i++) {
+                    generator.generate(size, size, 0, cells, rand);
+                }
+                long bytes = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                for (int i = 0; i < runs; i++) {
+                    generator.generate(size, size, 0, cells, rand);
+                }
+                long nanos = System.nanoTime() - start;
+                bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+                System.out.printf("%-16s %6d %6d %12.3f %14.2f %14.2f%n",
+                        generator.getClass().getSimpleName(), size, runs,
+                        nanos / 1e6 / runs, (double) cells * runs * 1e3 / nanos, (double) bytes / runs / cells);
+            }
+        }
+    }
+}
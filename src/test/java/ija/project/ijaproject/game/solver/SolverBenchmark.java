@@ -0,0 +1,118 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Benchmark of the solver: the sequential search over   #
+# bulb densities and the parallel speedup over thread   #
+# counts. Run with `make bench-solver`, board sizes may #
+# be passed as arguments.                               #
+#########################################################
+*/
+
+/**
+ * @file SolverBenchmark.java
+ * @brief Command line benchmark of the sequential and the parallel solver.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import ija.project.ijaproject.game.GameRepo;
+import ija.project.ijaproject.game.GenerationProfile;
+import ija.project.ijaproject.game.Puzzle;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @class SolverBenchmark
+ * @brief Measures the solver on generated boards.
+ * The first table solves full-board mazes of every size with the sequential solver for several
+ * bulb densities, giving up after NODE_LIMIT search nodes; fewer bulbs leave more of the board
+ * free, which makes the search harder. The second table solves boards with pools of 1, 2, 4, ...
+ * threads up to the available processors; the reported time is the total over a batch of boards
+ * after a warm-up run, the speedup is relative to the single thread.
+ */
+public class SolverBenchmark {
+    private static final int[] DEFAULT_SIZES = {32, 64, 128};   ///< Board sizes measured by default.
+    private static final int BOARDS = 8;                        ///< Boards solved per measurement.
+    private static final double BULB_DENSITY = 0.3;             ///< Bulb density of the parallel boards.
+    private static final double[] DENSITIES = {0.3, 0.05, 0.005}; ///< Bulb densities of the sequential boards.
+    private static final long NODE_LIMIT = 100_000;             ///< Search nodes after which the sequential solver gives up.
+
+    /**
+     * @param args Sizes of the square boards, defaults to 32, 64 and 128.
+     * @brief Runs the benchmark and prints both tables.
+     */
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+        sequential(sizes);
+        System.out.println();
+        parallel(sizes);
+    }
+
+    /**
+     * @param sizes Sizes of the square boards
+     * @brief Prints one line per board size and bulb density with the outcomes of the sequential solver.
+     */
+    private static void sequential(int[] sizes) {
+        System.out.printf("%6s %8s %8s %8s %12s %12s %14s%n",
+                "size", "density", "solved", "gave up", "median ms", "max ms", "max nodes");
+        for (int size : sizes) {
+            for (double density : DENSITIES) {
+                List<Puzzle> boards = GameRepo.generateBatch(
+                        new GenerationProfile(size, size, density, size * size, size), BOARDS);
+                Solver.of(boards.getFirst()).solve(NODE_LIMIT);
+                int solved = 0, gaveUp = 0;
+                long maxNodes = 0;
+                long[] nanos = new long[BOARDS];
+                for (int i = 0; i < BOARDS; i++) {
+                    SolverResult result = Solver.of(boards.get(i)).solve(NODE_LIMIT);
+                    if (result.solved()) solved++;
+                    if (result.gaveUp()) gaveUp++;
+                    maxNodes = Math.max(maxNodes, result.nodes());
+                    nanos[i] = result.nanos();
+                }
+                Arrays.sort(nanos);
+                System.out.printf("%6d %8.3f %8d %8d %12.3f %12.3f %14d%n", size, density, solved, gaveUp,
+                        nanos[BOARDS / 2] / 1e6, nanos[BOARDS - 1] / 1e6, maxNodes);
+            }
+        }
+    }
+
+    /**
+     * @param sizes Sizes of the square boards
+     * @brief Prints one line per board size and thread count with the speedup of the parallel solver.
+     */
+    private static void parallel(int[] sizes) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%6s %8s %12s %14s %10s%n", "size", "threads", "ms/board", "nodes/board", "speedup");
+        for (int size : sizes) {
+            // Trees over half of the board leave long dead ends to the search, which makes it harder
+            List<Puzzle> boards = GameRepo.generateBatch(
+                    new GenerationProfile(size, size, BULB_DENSITY, size * size / 2, size), BOARDS);
+            double single = 0;
+            for (int threads = 1; threads <= processors; threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelSolver solver = new ParallelSolver(pool);
+                solver.solve(boards.getFirst());
+                long nodes = 0;
+                long start = System.nanoTime();
+                for (Puzzle board : boards) {
+                    nodes += solver.solve(board).nodes();
+                }
+                long nanos = System.nanoTime() - start;
+                pool.shutdown();
+                if (threads == 1) single = nanos;
+                System.out.printf("%6d %8d %12.3f %14d %10.2f%n",
+                        size, threads, nanos / 1e6 / BOARDS, nodes / BOARDS, single / nanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+#########################################################
+#                     IJA - project                     #
+#         Authors: Urbánek Aleš, Kováčik Martin         #
+#              Logins: xurbana00, xkovacm01             #
+#                     Description:                      #
+# Tests of the puzzle solver: solution counts against   #
+# a brute force search of small boards, solved games,   #
+# the node limit and the parallel search.               #
+#########################################################
+*/
+
+/**
+ * @file SolverTest.java
+ * @brief Tests of the puzzle solver.
+ */
+
+package ija.project.ijaproject.game.solver;
+
+import ija.project.ijaproject.game.Game;
+import ija.project.ijaproject.game.GameRepo;
+import ija.project.ijaproject.game.GenerationProfile;
+import ija.project.ijaproject.game.Puzzle;
+import ija.project.ijaproject.game.node.GameNode;
+import ija.project.ijaproject.game.node.NodePosition;
+import ija.project.ijaproject.game.node.NodeSide;
+import ija.project.ijaproject.game.node.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @class SolverTest
+ * @brief Checks the solver against an exhaustive search of small boards.
+ * A solution is a rotation of every tile where the connectors of neighbouring nodes match, no
+ * connector leads off the board, connectors may point at empty tiles, the connected nodes form no
+ * cycle and every bulb is connected to the power node. Rotations giving the same connector mask
+ * are one solution.
+ */
+class SolverTest {
+    private static final int LIMIT = 1000; ///< Solution limit of the rated boards.
+    private static final int[] THREADS = {1, 2, 4}; ///< Numbers of searches of the parallel solver.
+
+    /**
+     * @param seed Seed of the generation
+     * @return A sparse generated game whose search branches after the propagation
+     * @brief Generates a game for the parallel search.
+     */
+    private static Game sparse(long seed) {
+        return GameRepo.generate(new GenerationProfile(24, 24, 0.05, 24 * 24, seed));
+    }
+
+    /**
+     * @param game   The game to rotate
+     * @param result Outcome of solving the game
+     * @return True if rotating the tiles as the solver says lights every bulb
+     * @brief Applies a solution to a game.
+     */
+    private static boolean completes(Game game, SolverResult result) {
+        game.batch(() -> {
+            for (int i = 0; i < game.rows() * game.cols(); i++) {
+                for (int turn = 0; turn < result.turns(i); turn++) game.node(i).turn(true);
+            }
+        });
+        return game.isComplete();
+    }
+
+    /**
+     * @param puzzle The puzzle to search
+     * @return Number of solutions of the puzzle
+     * @brief Counts the solutions of a puzzle by trying all rotations of its tiles.
+     */
+    private static int bruteForce(Puzzle puzzle) {
+        int n = puzzle.rows() * puzzle.cols();
+        int[][] options = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int mask = puzzle.sides()[i];
+            for (int turn = 0; turn < puzzle.turns()[i]; turn++) mask = GameNode.rotate(mask);
+            int count = puzzle.type(i) == NodeType.EMPTY || mask == 0x0F ? 1 : mask == 0x05 || mask == 0x0A ? 2 : 4;
+            options[i] = new int[count];
+            for (int k = 0; k < count; k++, mask = GameNode.rotate(mask)) options[i][k] = mask;
+        }
+        int[] choice = new int[n];
+        int[] sides = new int[n];
+        int solutions = 0;
+        while (true) {
+            for (int i = 0; i < n; i++) sides[i] = options[i][choice[i]];
+            if (solved(puzzle, sides)) solutions++;
+            int k = 0;
+            while (k < n && ++choice[k] == options[k].length) choice[k++] = 0;
+            if (k == n) return solutions;
+        }
+    }
+
+    /**
+     * @param puzzle The puzzle being searched
+     * @param sides  Connector mask of every tile
+     * @return True if the masks are a solution of the puzzle
+     * @brief Checks one rotation of all tiles of a puzzle.
+     */
+    private static boolean solved(Puzzle puzzle, int[] sides) {
+        int rows = puzzle.rows(), cols = puzzle.cols();
+        int[] parent = new int[rows * cols];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        int power = -1;
+        for (int i = 0; i < parent.length; i++) {
+            if (puzzle.type(i) == NodeType.EMPTY) continue;
+            if (puzzle.type(i) == NodeType.POWER) power = i;
+            for (int side = 0; side < 4; side++) {
+                if ((sides[i] >> side & 1) == 0) continue;
+                int row = i / cols + (side == 0 ? -1 : side == 2 ? 1 : 0);
+                int col = i % cols + (side == 1 ? 1 : side == 3 ? -1 : 0);
+                if (row < 0 || row >= rows || col < 0 || col >= cols) return false;
+                int next = row * cols + col;
+                if (puzzle.type(next) == NodeType.EMPTY) continue;
+                if ((sides[next] >> (side ^ 2) & 1) == 0) return false;
+                // Every connection is seen from both of its tiles, it is joined from the east and south side
+                if (side == 1 || side == 2) {
+                    int a = find(parent, i), b = find(parent, next);
+                    if (a == b) return false;
+                    parent[a] = b;
+                }
+            }
+        }
+        for (int i = 0; i < parent.length; i++) {
+            if (puzzle.type(i) == NodeType.BULB && find(parent, i) != find(parent, power)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param parent Parents of the union-find forest
+     * @param tile   The tile to look up
+     * @return The root of the tree holding the tile
+     * @brief Finds the component of a tile.
+     */
+    private static int find(int[] parent, int tile) {
+        while (parent[tile] != tile) tile = parent[tile];
+        return tile;
+    }
+
+    /**
+     * @brief The number of solutions counted by rate() equals the exhaustive search.
+     */
+    @Test
+    void rateMatchesBruteForce() {
+        int multiple = 0;
+        for (long seed = 0; seed < 60; seed++) {
+            Puzzle puzzle = GameRepo.generatePuzzle(new GenerationProfile(3, 3, 0.5, 9, seed));
+            int expected = Math.min(bruteForce(puzzle), LIMIT);
+            PuzzleRating rating = Solver.of(puzzle).rate(LIMIT);
+            assertTrue(rating.rated());
+            assertEquals(expected, rating.solutions(), "seed " + seed);
+            if (expected > 1) multiple++;
+        }
+        // The boards have to include ambiguous ones, or only the unique case is tested
+        assertTrue(multiple > 0);
+    }
+
+    /**
+     * @brief Rotating the tiles of a game as the solver says completes the game.
+     */
+    @Test
+    void solutionCompletesGame() {
+        for (long seed = 0; seed < 10; seed++) {
+            Game game = GameRepo.generate(new GenerationProfile(10, 10, 0.3, 100, seed));
+            SolverResult result = Solver.of(game).solve();
+            assertTrue(result.solved());
+            assertTrue(completes(game, result), "seed " + seed);
+        }
+    }
+
+    /**
+     * @brief A search stopped by its node limit reports that it gave up instead of a missing solution.
+     */
+    @Test
+    void nodeLimitGivesUp() {
+        // A sparse board leaves most tiles free, it is not decided by the first search node
+        Puzzle puzzle = GameRepo.generatePuzzle(new GenerationProfile(64, 64, 0.005, 64 * 64, 11));
+        SolverResult result = Solver.of(puzzle).solve(1);
+        assertFalse(result.solved());
+        assertTrue(result.gaveUp());
+        assertNull(result.turns());
+        assertEquals(1, result.nodes());
+        PuzzleRating rating = Solver.of(puzzle).rate(2, 1);
+        assertFalse(rating.rated());
+        assertFalse(rating.unique());
+    }
+
+    /**
+     * @brief The parallel search agrees with the sequential one for any number of searches and
+     * its solutions light every bulb.
+     */
+    @Test
+    void parallelSolutionsCompleteGame() {
+        // The middle tile is empty, so the bulb can never be connected
+        Game unsolvable = new Game(1, 3);
+        unsolvable.createPowerNode(new NodePosition(1, 1), NodeSide.EAST);
+        unsolvable.createBulbNode(new NodePosition(1, 3), NodeSide.WEST);
+        assertFalse(Solver.of(unsolvable).solve().solved());
+
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelSolver parallel = new ParallelSolver(pool, threads);
+                assertFalse(parallel.solve(unsolvable).solved());
+                for (long seed = 0; seed < 6; seed++) {
+                    Game game = sparse(seed);
+                    assertTrue(Solver.of(game).solve().solved());
+                    SolverResult result = parallel.solve(game);
+                    assertTrue(result.solved(), threads + " threads, seed " + seed);
+                    assertTrue(completes(game, result), threads + " threads, seed " + seed);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @brief Once a search finds a solution the others stop and no task keeps running.
+     */
+    @Test
+    void parallelSearchStops() {
+        int threads = THREADS[THREADS.length - 1];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ParallelSolver parallel = new ParallelSolver(pool, threads);
+            for (long seed = 0; seed < 6; seed++) {
+                long sequential = Solver.of(sparse(seed)).solve().nodes();
+                SolverResult result = parallel.solve(sparse(seed));
+                assertTrue(result.solved());
+                // The first search is the sequential one, the others see the stop flag at the next check
+                assertTrue(result.nodes() <= threads * (sequential + Solver.CHECK_MASK + 1), "seed " + seed);
+                assertTrue(pool.awaitQuiescence(1, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @brief Interrupting the thread waiting for the parallel search cancels the solving.
+     */
+    @Test
+    void parallelSearchCancels() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParallelSolver parallel = new ParallelSolver(pool, 2);
+            Game game = sparse(0);
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(CancellationException.class, () -> parallel.solve(game));
+            } finally {
+                // The interrupted state is kept for the caller
+                assertTrue(Thread.interrupted());
+            }
+            assertTrue(parallel.solve(game).solved());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}